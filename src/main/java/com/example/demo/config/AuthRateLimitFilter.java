@@ -0,0 +1,211 @@
+package com.example.demo.config;
+
+import com.example.demo.service.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Throttles the unauthenticated endpoints that hash a password (login, register, forgot-password)
+ * per client IP and per email, before any BCrypt or database work is done. Throttled requests
+ * get 429 with a Retry-After header.
+ * <p>
+ * The email is read from the JSON body, which is buffered (up to {@code security.rate-limit.max-body})
+ * and replayed to the controller. The client IP is the remote address; behind a proxy set
+ * {@code server.forward-headers-strategy} so it is taken from X-Forwarded-For.
+ */
+@Slf4j
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> PATHS = Set.of(
+            "/api/v1/auth/login",
+            "/api/v1/auth/register",
+            "/api/v1/auth/forgot-password"
+    );
+
+    private final JsonMapper jsonMapper;
+    private final RateLimiter byIp;
+    private final RateLimiter byEmail;
+    private final Counter ipThrottled;
+    private final Counter emailThrottled;
+
+    @Value("${security.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.rate-limit.max-body:16384}")
+    private int maxBody;
+
+    public AuthRateLimitFilter(
+            JsonMapper jsonMapper,
+            MeterRegistry meterRegistry,
+            @Value("${security.rate-limit.ip.capacity:20}") int ipCapacity,
+            @Value("${security.rate-limit.ip.refill-period:3s}") Duration ipRefillPeriod,
+            @Value("${security.rate-limit.email.capacity:5}") int emailCapacity,
+            @Value("${security.rate-limit.email.refill-period:30s}") Duration emailRefillPeriod,
+            @Value("${security.rate-limit.shards:64}") int shards,
+            @Value("${security.rate-limit.max-keys:100000}") int maxKeys
+    ) {
+        this.jsonMapper = jsonMapper;
+        int maxKeysPerShard = Math.max(1, maxKeys / shards);
+        this.byIp = new RateLimiter(ipCapacity, ipRefillPeriod, shards, maxKeysPerShard);
+        this.byEmail = new RateLimiter(emailCapacity, emailRefillPeriod, shards, maxKeysPerShard);
+        this.ipThrottled = Counter.builder("auth.rate.limited").tag("key", "ip").register(meterRegistry);
+        this.emailThrottled = Counter.builder("auth.rate.limited").tag("key", "email").register(meterRegistry);
+        Gauge.builder("auth.rate.limit.keys", byIp, RateLimiter::size).tag("key", "ip").register(meterRegistry);
+        Gauge.builder("auth.rate.limit.keys", byEmail, RateLimiter::size).tag("key", "email").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !"POST".equalsIgnoreCase(request.getMethod())
+                || !PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long wait = byIp.tryAcquire(request.getRemoteAddr());
+        if (wait > 0) {
+            ipThrottled.increment();
+            reject(response, wait);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(maxBody + 1);
+        if (body.length > maxBody) {
+            response.sendError(HttpStatus.CONTENT_TOO_LARGE.value());
+            return;
+        }
+        String email = email(body);
+        if (email != null) {
+            wait = byEmail.tryAcquire(email);
+            if (wait > 0) {
+                emailThrottled.increment();
+                reject(response, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(new BufferedBodyRequest(request, body), response);
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:1m}")
+    public void evictIdle() {
+        int ips = byIp.evictIdle();
+        int emails = byEmail.evictIdle();
+        log.debug("Auth rate limiter tracking {} IPs and {} emails", ips, emails);
+    }
+
+    // Malformed bodies are left for the controller to reject; only the IP limit applies to them
+    private String email(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = jsonMapper.readTree(body).get("email");
+            return email != null && email.isString() ? email.stringValue().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (JacksonException e) {
+            return null;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000)));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Too many attempts, try again later");
+    }
+
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory, so it is available (and then all read) at once
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authenticated principal built purely from verified JWT claims, so a request
+ * can be authenticated without loading the {@link com.example.demo.entity.User} row.
+ * Tokens that must stop working before they expire (logout, password reset) are
+ * rejected by {@link com.example.demo.service.TokenRevocationService}, by id or by
+ * the user's cutoff, before a principal is built.
+ */
+public record JwtPrincipal(Long id, String email, String fullName) implements UserDetails {
+
+    public static final String USER_ID_CLAIM = "userId";
+    public static final String FULL_NAME_CLAIM = "fullName";
+
+    /**
+     * Returns null when the token predates the userId claim and the principal has to be loaded instead.
+     */
+    public static JwtPrincipal fromClaims(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        if (userId == null) {
+            return null;
+        }
+        return new JwtPrincipal(
+                userId,
+                claims.getSubject(),
+                claims.get(FULL_NAME_CLAIM, String.class)
+        );
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of();
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
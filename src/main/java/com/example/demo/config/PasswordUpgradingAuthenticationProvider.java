@@ -0,0 +1,59 @@
+package com.example.demo.config;
+
+import com.example.demo.service.PasswordHashingUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link DaoAuthenticationProvider} whose rehash of a lower-cost password hash is best-effort.
+ * <p>
+ * The stock provider rehashes inside the login, so a {@link PasswordHashingUnavailableException}
+ * from a saturated hashing pool would turn a correct password into a 503. Here the password has
+ * already been checked when the rehash is attempted; if hashing is rejected the login succeeds
+ * with the old hash, and the upgrade is tried again on a later login.
+ */
+@Slf4j
+public class PasswordUpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final PasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService passwordService;
+
+    public PasswordUpgradingAuthenticationProvider(UserDetailsService userDetailsService,
+                                                   PasswordEncoder passwordEncoder,
+                                                   UserDetailsPasswordService passwordService) {
+        super(userDetailsService);
+        this.passwordEncoder = passwordEncoder;
+        this.passwordService = passwordService;
+        // Same hashing, but the superclass never sees a hash to upgrade: that is done below
+        setPasswordEncoder(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return passwordEncoder.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return passwordEncoder.matches(rawPassword, encodedPassword);
+            }
+        });
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                         UserDetails user) {
+        if (user.getPassword() != null && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            try {
+                String newPassword = passwordEncoder.encode(authentication.getCredentials().toString());
+                user = passwordService.updatePassword(user, newPassword);
+            } catch (PasswordHashingUnavailableException e) {
+                log.debug("Password rehash for {} postponed: {}", user.getUsername(), e.getMessage());
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.demo.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.security.autoconfigure.actuate.web.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -17,6 +20,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 @Configuration
 @EnableWebSecurity
@@ -24,28 +28,45 @@ import java.util.List;
 public class SecurityConfiguration {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final AuthRateLimitFilter authRateLimitFilter;
     private final AuthenticationProvider authenticationProvider;
 
     // Inject from application.properties / environment variable
     @Value("${cors.allowed.origins=https://bt-community.github.io}")
     private String allowedOrigins;
 
+    @Value("${security.admin.emails:}")
+    private Set<String> adminEmails;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Served on the management port only, which is not exposed publicly
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
+                        // Streamed responses finish on an async dispatch of a request that was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/v1/auth/logout").authenticated()
                         .requestMatchers("/api/v1/auth/**").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/v1/reviews").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/v1/reviews/stats").permitAll()
                         .requestMatchers("/api/v1/reviews/**").authenticated()
+                        // Authenticated by its HMAC signature instead of a JWT
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/v1/payment/webhook").permitAll()
                         .requestMatchers("/api/v1/payment/**").authenticated()
                         .requestMatchers("/api/v1/subscription/**").authenticated()
+                        // Table exports: only the accounts listed in security.admin.emails
+                        .requestMatchers("/api/v1/admin/**").access((authentication, context) ->
+                                new AuthorizationDecision(adminEmails.contains(authentication.get().getName())))
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Throttled before any token parsing, user lookup or password hashing
+                .addFilterBefore(authRateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -66,11 +87,16 @@ public class SecurityConfiguration {
                 "Authorization",
                 "Content-Type",
                 "Accept",
-                "Origin"
+                "Origin",
+                "If-None-Match",
+                "Idempotency-Key"
         ));
 
         configuration.setExposedHeaders(List.of(
-                "Authorization"
+                "Authorization",
+                "X-Next-Cursor",
+                "ETag",
+                "Idempotent-Replayed"
         ));
 
         configuration.setAllowCredentials(true); // ← THIS is mandatory
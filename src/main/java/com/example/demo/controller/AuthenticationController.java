@@ -1,15 +1,22 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.JwtPrincipal;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.JwtService;
+import com.example.demo.service.PasswordHashingUnavailableException;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.UserCache;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +29,8 @@ public class AuthenticationController {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final UserCache userCache;
+    private final TokenRevocationService tokenRevocationService;
 
     @PostMapping("/register")
     public ResponseEntity<String> register(@RequestBody User request) {
@@ -29,23 +38,33 @@ public class AuthenticationController {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
             return ResponseEntity.badRequest().body("Email already in use");
         }
-        request.setPassword(passwordEncoder.encode(request.getPassword()));
-        userRepository.save(request);
+        try {
+            request.setPassword(passwordEncoder.encode(request.getPassword()));
+        } catch (PasswordHashingUnavailableException e) {
+            return busy(e);
+        }
+        userCache.put(userRepository.save(request));
         return ResponseEntity.ok("Registration Successful");
     }
 
     @PostMapping("/login")
     public ResponseEntity<String> authenticate(@RequestBody User request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+        try {
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
+            );
+        } catch (PasswordHashingUnavailableException e) {
+            return busy(e);
+        }
 
-        var user = userRepository.findByEmail(request.getEmail())
+        // Already cached by the authentication manager's UserDetailsService lookup
+        var user = userCache.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("fullName", user.getFullName());
+        extraClaims.put(JwtPrincipal.FULL_NAME_CLAIM, user.getFullName());
         extraClaims.put("phoneNumber", user.getPhoneNumber());
+        extraClaims.put(JwtPrincipal.USER_ID_CLAIM, user.getId());
 
         String token = jwtService.generateToken(extraClaims, user);
 
@@ -62,13 +81,41 @@ public class AuthenticationController {
             return ResponseEntity.badRequest().body("Email and new password are required");
         }
 
+        // Load a fresh copy: cached users are shared and must not be mutated
         var user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User with this email not found"));
 
         // Update and hash the new password
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        try {
+            user.setPassword(passwordEncoder.encode(newPassword));
+        } catch (PasswordHashingUnavailableException e) {
+            return busy(e);
+        }
+        userCache.put(userRepository.save(user));
+        // Tokens issued with the old password stop working on every node
+        tokenRevocationService.revokeAllBefore(user.getEmail(), Instant.now());
 
         return ResponseEntity.ok("Password updated successfully");
     }
-}
\ No newline at end of file
+
+    // Revokes the presented token, or with everywhere=true every token of the user issued so far
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(
+            @RequestAttribute(JwtService.CLAIMS_ATTRIBUTE) Claims claims,
+            @RequestParam(defaultValue = "false") boolean everywhere
+    ) {
+        // Tokens issued before they carried an id can only be revoked together
+        if (everywhere || claims.getId() == null) {
+            tokenRevocationService.revokeAllBefore(claims.getSubject(), Instant.now());
+        } else {
+            tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration());
+        }
+        return ResponseEntity.ok("Logged out");
+    }
+
+    private static ResponseEntity<String> busy(PasswordHashingUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body("Authentication is busy, try again shortly: " + e.getMessage());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/v1/admin/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    // GET: Admins only. Streams payments, subscriptions or reviews in id order; after an interrupted
+    // download, ask again with after=<last id received>
+    @GetMapping("/{table}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String table,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "0") long limit
+    ) {
+        ExportService.Table source = ExportService.Table.from(table);
+        if (source == null) {
+            return badRequest("Unknown table: " + table);
+        }
+        ExportService.Format output = ExportService.Format.from(format);
+        if (output == null) {
+            return badRequest("Format must be ndjson or csv");
+        }
+        if (after < 0 || limit < 0) {
+            return badRequest("after and limit must not be negative");
+        }
+
+        StreamingResponseBody body = out -> exportService.export(source, output, after, limit, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(output.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(source.tableName() + "." + output.extension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    // Only a StreamingResponseBody can be returned from a streaming handler, so errors are written the same way
+    private static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+}
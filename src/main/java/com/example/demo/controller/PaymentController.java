@@ -1,15 +1,29 @@
 package com.example.demo.controller;
 
 import com.example.demo.entity.User;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.service.GatewayUnavailableException;
+import com.example.demo.service.IdempotencyService;
 import com.example.demo.service.PaymentService;
+import com.example.demo.service.UserCache;
+import com.example.demo.service.WebhookInbox;
 import com.razorpay.RazorpayException;
 import lombok.RequiredArgsConstructor;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/v1/payment")
@@ -17,42 +31,92 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final IdempotencyService idempotencyService;
+    private final WebhookInbox webhookInbox;
+
+    @Value("${razorpay.webhook.ack-timeout:5s}")
+    private Duration webhookAckTimeout;
 
     @PostMapping("/create-order")
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> requestData) {
-        try {
-            // Get user email from JWT context
-            String email = SecurityContextHolder.getContext().getAuthentication().getName();
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+    public ResponseEntity<?> createOrder(
+            @RequestBody Map<String, Object> requestData,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
+        // Get user email from JWT context
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return idempotencyService.execute(email + "|create-order", idempotencyKey, requestData, () -> {
+            try {
+                User user = userCache.findByEmail(email)
+                        .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Double amount = Double.parseDouble(requestData.get("amount").toString());
-            String orderJson = paymentService.createOrder(amount, user);
+                Double amount = Double.parseDouble(requestData.get("amount").toString());
+                String orderJson = paymentService.createOrder(amount, user);
 
-            return ResponseEntity.ok(orderJson);
-        } catch (RazorpayException e) {
-            return ResponseEntity.internalServerError().body("Razorpay Error: " + e.getMessage());
-        }
+                return ResponseEntity.ok(orderJson);
+            } catch (RazorpayException e) {
+                return ResponseEntity.internalServerError().body("Razorpay Error: " + e.getMessage());
+            } catch (GatewayUnavailableException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Payment gateway unavailable: " + e.getMessage());
+            }
+        });
     }
 
     @PostMapping("/verify")
-    public ResponseEntity<?> verifyPayment(@RequestBody Map<String, String> paymentResponse) {
-        try {
-            String email = SecurityContextHolder
-                    .getContext()
-                    .getAuthentication()
-                    .getName();
+    public ResponseEntity<?> verifyPayment(
+            @RequestBody Map<String, String> paymentResponse,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
+        String email = SecurityContextHolder
+                .getContext()
+                .getAuthentication()
+                .getName();
+        return idempotencyService.execute(email + "|verify", idempotencyKey, paymentResponse, () -> {
+            try {
+                User user = userCache.findByEmail(email)
+                        .orElseThrow(() -> new RuntimeException("User not found"));
 
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+                paymentService.verifyAndSavePayment(paymentResponse, user);
 
-            paymentService.verifyAndSavePayment(paymentResponse, user);
+                return ResponseEntity.ok(Map.of("message", "Payment processed successfully"));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body("Verification Failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // Razorpay delivers at least once; a non-2xx answer makes it redeliver later
+    @PostMapping("/webhook")
+    public ResponseEntity<?> webhook(
+            @RequestBody byte[] body,
+            @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+            @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId
+    ) {
+        try {
+            // Signed over the exact bytes Razorpay sent, so verify before any decoding
+            if (!paymentService.isWebhookSignatureValid(body, signature)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid webhook signature");
+            }
+            String payload = new String(body, StandardCharsets.UTF_8);
+            String eventType = new JSONObject(payload).getString("event");
+            if (eventId == null || eventId.isBlank()) {
+                eventId = DigestUtils.md5DigestAsHex(body);
+            }
 
-            return ResponseEntity.ok(Map.of("message", "Payment processed successfully"));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Verification Failed: " + e.getMessage());
+            CompletableFuture<Void> stored = webhookInbox.submit(eventId, eventType, payload);
+            if (stored == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Webhook queue full");
+            }
+            stored.get(webhookAckTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return ResponseEntity.ok().build();
+        } catch (JSONException e) {
+            return ResponseEntity.badRequest().body("Invalid webhook: " + e.getMessage());
+        } catch (TimeoutException | ExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Webhook not stored, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Webhook not stored, retry later");
         }
     }
 
-}
\ No newline at end of file
+}
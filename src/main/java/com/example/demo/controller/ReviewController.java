@@ -1,12 +1,23 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.RatingSummary;
+import com.example.demo.dto.ReviewCursor;
+import com.example.demo.dto.ReviewView;
 import com.example.demo.entity.Review;
 import com.example.demo.repository.ReviewRepository;
 import com.example.demo.service.JwtService;
+import com.example.demo.service.ReviewFeedCache;
+import com.example.demo.service.ReviewRatingStats;
+import com.example.demo.service.ReviewService;
 import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,32 +27,88 @@ import java.util.List;
 public class ReviewController {
 
     private final ReviewRepository reviewRepository;
-    private final JwtService jwtService;
+    private final ReviewService reviewService;
+    private final ReviewFeedCache reviewFeedCache;
+    private final ReviewRatingStats reviewRatingStats;
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Value("${reviews.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${reviews.page.max-size:100}")
+    private int maxPageSize;
 
     // POST: Needs Token, Fetches name from Token
     @PostMapping
-    public ResponseEntity<Review> postReview(
-            @RequestHeader("Authorization") String token,
+    public ResponseEntity<?> postReview(
+            @RequestAttribute(JwtService.CLAIMS_ATTRIBUTE) Claims claims,
             @RequestBody Review reviewRequest) {
 
-        // Remove "Bearer " prefix
-        String jwt = token.substring(7);
+        if (!ReviewRatingStats.isValidRating(reviewRequest.getRating())) {
+            return ResponseEntity.badRequest().body("Rating must be between 1 and 5");
+        }
 
-        // Extract the "fullName" claim we added to the token earlier
-        String fullName = jwtService.extractClaim(jwt, claims -> claims.get("fullName", String.class));
+        // Extract the "fullName" claim we added to the token earlier (already verified by the filter)
+        String fullName = claims.get("fullName", String.class);
 
-        Review review = Review.builder()
-                .userName(fullName)
-                .rating(reviewRequest.getRating())
-                .massage(reviewRequest.getMassage())
-                .build();
+        return ResponseEntity.ok(reviewService.postReview(fullName, reviewRequest.getRating(), reviewRequest.getMassage()));
+    }
 
-        return ResponseEntity.ok(reviewRepository.save(review));
+    // GET: Public, served from the rating rollup without touching the reviews table
+    @GetMapping("/stats")
+    public ResponseEntity<RatingSummary> getStats() {
+        return ResponseEntity.ok(reviewRatingStats.summary());
     }
 
-    // GET: Public, no token needed
+    // GET: Public, no token needed. Newest first, one page at a time; the next page's cursor is in X-Next-Cursor
     @GetMapping
-    public ResponseEntity<List<Review>> getAllReviews() {
-        return ResponseEntity.ok(reviewRepository.findAllByOrderByCreatedAtDesc());
+    public ResponseEntity<?> getAllReviews(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+
+        int pageSize = Math.min(size == null || size <= 0 ? defaultPageSize : size, maxPageSize);
+
+        // Landing-page traffic: serve the pre-encoded bytes, or 304 if the client already has them
+        ReviewFeedCache.Page cached = reviewFeedCache.find(cursor, pageSize);
+        if (cached != null) {
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            String etag = gzip ? cached.gzipEtag() : cached.etag();
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+            var response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (cached.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, cached.nextCursor());
+            }
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzip());
+            }
+            return response.body(cached.json());
+        }
+
+        List<ReviewView> page;
+        if (cursor == null || cursor.isEmpty()) {
+            page = reviewRepository.findFeedFirstPage(Limit.of(pageSize));
+        } else {
+            ReviewCursor after;
+            try {
+                after = ReviewCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor");
+            }
+            page = reviewRepository.findFeedPageAfter(after.createdAt(), after.id(), Limit.of(pageSize));
+        }
+
+        var response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, ReviewCursor.after(page.get(page.size() - 1)).encode());
+        }
+        return response.body(page);
     }
 }
\ No newline at end of file
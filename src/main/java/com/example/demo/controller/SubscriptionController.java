@@ -1,11 +1,13 @@
 package com.example.demo.controller;
 
-import com.example.demo.entity.Subscription;
+import com.example.demo.config.JwtPrincipal;
+import com.example.demo.dto.Entitlement;
 import com.example.demo.entity.User;
-import com.example.demo.repository.SubscriptionRepository;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.service.EntitlementCache;
+import com.example.demo.service.UserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,38 +20,42 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class SubscriptionController {
 
-    private final SubscriptionRepository subscriptionRepository;
-    private final UserRepository userRepository;
+    private final EntitlementCache entitlementCache;
+    private final UserCache userCache;
 
     @GetMapping("/status")
     public ResponseEntity<?> getSubscriptionStatus() {
         try {
-            String email = SecurityContextHolder.getContext().getAuthentication().getName();
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            return subscriptionRepository.findByUserAndActiveTrue(user)
-                    .map(sub -> {
-                        // Check if subscription is still valid
-                        boolean isActive = sub.getEndDate().isAfter(LocalDateTime.now());
-
-                        if (!isActive && sub.getActive()) {
-                            // Deactivate expired subscription
-                            sub.setActive(false);
-                            subscriptionRepository.save(sub);
-                        }
-
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("active", isActive);
-                        response.put("plan", sub.getPlanName());
-                        response.put("startDate", sub.getStartDate());
-                        response.put("endDate", sub.getEndDate());
-                        return ResponseEntity.ok(response);
-                    })
-                    .orElse(ResponseEntity.ok(Map.of("active", false)));
+            Entitlement entitlement = entitlementCache.find(currentUserId());
+            if (entitlement == Entitlement.NONE) {
+                return ResponseEntity.ok(Map.of("active", false));
+            }
+
+            // Read-only: the flag is flipped by SubscriptionExpiryScheduler, this only
+            // covers the moments between the end date and its bucket firing
+            Map<String, Object> response = new HashMap<>();
+            response.put("active", entitlement.isActive(LocalDateTime.now()));
+            response.put("plan", entitlement.planName());
+            response.put("startDate", entitlement.startDate());
+            response.put("endDate", entitlement.endDate());
+            return ResponseEntity.ok(response);
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // The principal already carries the id, either from the token or from the cached user
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal.id();
+        }
+        if (authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return userCache.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"))
+                .getId();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * What a user's active subscription entitles them to; {@link #NONE} when there is none.
+ */
+public record Entitlement(String planName, LocalDateTime startDate, LocalDateTime endDate) {
+
+    public static final Entitlement NONE = new Entitlement(null, null, null);
+
+    public boolean isActive(LocalDateTime now) {
+        return endDate != null && endDate.isAfter(now);
+    }
+}
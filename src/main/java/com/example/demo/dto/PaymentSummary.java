@@ -0,0 +1,4 @@
+package com.example.demo.dto;
+
+public record PaymentSummary(Long id, Long userId, Double amount, String status) {
+}
@@ -0,0 +1,6 @@
+package com.example.demo.dto;
+
+import java.util.Map;
+
+public record RatingSummary(long count, double average, Map<Integer, Long> histogram) {
+}
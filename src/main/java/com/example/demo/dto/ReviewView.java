@@ -0,0 +1,10 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a review for the public feed. Serialises with the same
+ * field names as {@link com.example.demo.entity.Review}.
+ */
+public record ReviewView(Long id, String userName, Integer rating, String massage, LocalDateTime createdAt) {
+}
@@ -0,0 +1,6 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+public record SubscriptionExpiry(Long id, Long userId, LocalDateTime endDate) {
+}
@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled: one nextval per 50 ids, and inserts can be batched, unlike IDENTITY
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
     private String razorpayOrderId;
@@ -22,11 +24,12 @@ public class Payment {
 
     private Double amount;
     private String currency;
-    private String status; // CREATED, SUCCESS, FAILED
+    private String status; // PENDING, CREATED, SUCCESS, FAILED
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 }
\ No newline at end of file
@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 public class Review {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reviews_seq")
+    @SequenceGenerator(name = "reviews_seq", sequenceName = "reviews_seq", allocationSize = 50)
     private Long id;
 
     // This will be fetched from the JWT token
@@ -26,5 +27,6 @@ public class Review {
     @Column(columnDefinition = "TEXT")
     private String massage; // Using your requested attribute name "massage"
 
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Persisted rollup of the review histogram: one row per star rating (1-5).
+ */
+@Entity
+@Table(name = "review_rating_counts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReviewRatingCount {
+
+    @Id
+    private Integer rating;
+
+    @Column(nullable = false)
+    private Long reviewCount;
+}
@@ -13,22 +13,26 @@ import java.time.LocalDateTime;
 public class Subscription {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscriptions_seq")
+    @SequenceGenerator(name = "subscriptions_seq", sequenceName = "subscriptions_seq", allocationSize = 50)
     private Long id;
 
-    @OneToOne
-    @JoinColumn(name = "user_id", unique = true)
+    // Renewals keep the old rows, so only the active subscription is unique per user
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
     private User user;
 
     private String planName; // "1 Month", "3 Months", etc.
     private Double amount;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    @Builder.Default
     private Boolean active = true;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_id")
     private Payment payment;
 
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Inbox of Razorpay webhook deliveries. A row is written before the delivery is acknowledged
+ * and marked processed once its payment and subscription changes are committed.
+ */
+@Entity
+@Table(name = "webhook_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookEvent {
+
+    // X-Razorpay-Event-Id, the same for every redelivery of an event
+    @Id
+    private String eventId;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+
+    // Failed attempts to apply the event on its own; recovery gives up at razorpay.webhook.max-attempts
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+}
@@ -0,0 +1,49 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Claims the key across nodes: 1 if this caller now owns it, 0 if another request holds it.
+    // Expired keys, and keys still IN_PROGRESS after the lease (their node died mid-request), are taken over.
+    // created_at identifies the claim, so a request that lost its key cannot complete or release the new one.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into idempotency_keys (id, request_hash, status, created_at, expires_at)
+            values (:id, :requestHash, 'IN_PROGRESS', :claimedAt, :expiresAt)
+            on conflict (id) do update
+            set request_hash = excluded.request_hash, status = 'IN_PROGRESS', response_status = null,
+                response_content_type = null, response_body = null,
+                created_at = excluded.created_at, expires_at = excluded.expires_at
+            where idempotency_keys.expires_at < excluded.created_at
+               or (idempotency_keys.status = 'IN_PROGRESS' and idempotency_keys.created_at < :leaseExpiredBefore)""",
+            nativeQuery = true)
+    int claim(String id, String requestHash, LocalDateTime claimedAt, LocalDateTime expiresAt, LocalDateTime leaseExpiredBefore);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update IdempotencyRecord r
+            set r.status = 'COMPLETED', r.responseStatus = :responseStatus,
+                r.responseContentType = :responseContentType, r.responseBody = :responseBody
+            where r.id = :id and r.createdAt = :claimedAt""")
+    int complete(String id, LocalDateTime claimedAt, Integer responseStatus, String responseContentType, String responseBody);
+
+    // Frees a key whose request did not succeed, so the client can retry it
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.createdAt = :claimedAt and r.status = 'IN_PROGRESS'")
+    int release(String id, LocalDateTime claimedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
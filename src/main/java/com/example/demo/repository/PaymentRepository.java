@@ -1,9 +1,44 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.PaymentSummary;
 import com.example.demo.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
-    Optional<Payment> findByRazorpayOrderId(String orderId);
-}
\ No newline at end of file
+    // What verification needs, owner id included, without loading the payment or its user;
+    // served by idx_payments_razorpay_order_id
+    @Query("""
+            select new com.example.demo.dto.PaymentSummary(p.id, p.user.id, p.amount, p.status)
+            from Payment p
+            where p.razorpayOrderId = :orderId""")
+    Optional<PaymentSummary> findSummaryByRazorpayOrderId(String orderId);
+
+    @Query("select p.id from Payment p where p.status = :status and p.createdAt < :createdBefore")
+    List<Long> findIdsByStatusAndCreatedAtBefore(String status, LocalDateTime createdBefore);
+
+    // Order-creation phases run as their own short transactions, see PaymentService.createOrder
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.razorpayOrderId = :orderId, p.status = 'CREATED' where p.id = :id and p.status = 'PENDING'")
+    int attachOrder(Long id, String orderId);
+
+    @Transactional
+    @Modifying
+    @Query("update Payment p set p.status = 'FAILED' where p.id = :id and p.status = 'PENDING'")
+    int markIntentFailed(Long id);
+
+    // 0 when the payment was already confirmed, by the client or by the Razorpay webhook
+    @Modifying
+    @Query("""
+            update Payment p
+            set p.razorpayPaymentId = :paymentId, p.razorpaySignature = :signature, p.status = 'SUCCESS'
+            where p.id = :id and p.status <> 'SUCCESS'""")
+    int markSucceeded(Long id, String paymentId, String signature);
+}
@@ -0,0 +1,31 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ReviewRatingCount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ReviewRatingCountRepository extends JpaRepository<ReviewRatingCount, Integer> {
+
+    // Only the row of the posted star is locked, so posts with different ratings never wait on each other
+    @Modifying
+    @Query("update ReviewRatingCount c set c.reviewCount = c.reviewCount + 1 where c.rating = :rating")
+    int increment(Integer rating);
+
+    @Modifying
+    @Query("update ReviewRatingCount c set c.reviewCount = :reviewCount where c.rating = :rating")
+    int overwrite(Integer rating, Long reviewCount);
+
+    @Modifying
+    @Query(value = "insert into review_rating_counts (rating, review_count) values (:rating, 0) on conflict do nothing",
+            nativeQuery = true)
+    void insertIfMissing(Integer rating);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ReviewRatingCount c order by c.rating")
+    List<ReviewRatingCount> lockAll();
+}
@@ -1,10 +1,31 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.RatingCount;
+import com.example.demo.dto.ReviewView;
 import com.example.demo.entity.Review;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
-    // Fetch reviews by newest first
-    List<Review> findAllByOrderByCreatedAtDesc();
-}
\ No newline at end of file
+    // Fetch reviews by newest first, keyset-paginated over (created_at, id) and served by idx_reviews_created_at_id
+    @Query("""
+            select new com.example.demo.dto.ReviewView(r.id, r.userName, r.rating, r.massage, r.createdAt)
+            from Review r
+            order by r.createdAt desc, r.id desc""")
+    List<ReviewView> findFeedFirstPage(Limit limit);
+
+    @Query("""
+            select new com.example.demo.dto.ReviewView(r.id, r.userName, r.rating, r.massage, r.createdAt)
+            from Review r
+            where (r.createdAt, r.id) < (:createdAt, :id)
+            order by r.createdAt desc, r.id desc""")
+    List<ReviewView> findFeedPageAfter(LocalDateTime createdAt, Long id, Limit limit);
+
+    // Full scan, only used to rebuild the rating rollup on startup
+    @Query("select new com.example.demo.dto.RatingCount(r.rating, count(r)) from Review r group by r.rating")
+    List<RatingCount> countByRating();
+}
@@ -1,11 +1,43 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.Entitlement;
+import com.example.demo.dto.SubscriptionExpiry;
 import com.example.demo.entity.Subscription;
-import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
-    Optional<Subscription> findByUserAndActiveTrue(User user);
-}
\ No newline at end of file
+    // Replaces load-then-save of the previous subscription with a single statement
+    @Modifying
+    @Query("update Subscription s set s.active = false where s.user.id = :userId and s.active = true")
+    int deactivateActive(Long userId);
+
+    // Projection for EntitlementCache misses: no user or payment rows are loaded
+    @Query("""
+            select new com.example.demo.dto.Entitlement(s.planName, s.startDate, s.endDate)
+            from Subscription s
+            where s.user.id = :userId and s.active = true""")
+    Optional<Entitlement> findEntitlement(Long userId);
+
+    // Active subscriptions ending before the given time, served by idx_subscriptions_active_end_date_partial
+    @Query("""
+            select new com.example.demo.dto.SubscriptionExpiry(s.id, s.user.id, s.endDate)
+            from Subscription s
+            where s.active = true and s.endDate <= :until""")
+    List<SubscriptionExpiry> findActiveEndingBefore(LocalDateTime until);
+
+    // One statement per timing-wheel bucket; rows renewed or already expired are left alone
+    @Transactional
+    @Modifying
+    @Query("""
+            update Subscription s set s.active = false
+            where s.id in :ids and s.active = true and s.endDate <= :now""")
+    int expire(Collection<Long> ids, LocalDateTime now);
+}
@@ -2,8 +2,18 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    // Rehash on login: only applies while the row still holds the hash that was verified
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newHash where u.email = :email and u.password = :oldHash")
+    int updatePasswordHash(String email, String oldHash, String newHash);
+}
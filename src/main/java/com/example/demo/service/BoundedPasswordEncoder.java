@@ -0,0 +1,128 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt on its own small pool of platform threads, so a burst of logins or registrations
+ * cannot take every core away from the rest of the application.
+ * <p>
+ * At most {@code threads} hashes run at once and at most {@code queueCapacity} wait; beyond
+ * that, and for callers that waited longer than {@code maxWait}, hashing is rejected with
+ * {@link PasswordHashingUnavailableException}. Latency is recorded as {@code password.hash}
+ * (per operation and outcome), the backlog as {@code password.hash.queue.depth}.
+ * <p>
+ * Hashes with a lower cost than the configured one report {@link #upgradeEncoding}, so the
+ * authentication provider rehashes them after a successful login; while the queue is more
+ * than half full, or when that rehash is rejected, it is postponed to a later login.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final Timer encodeTimer;
+    private final Timer encodeRejectedTimer;
+    private final Timer matchesTimer;
+    private final Timer matchesRejectedTimer;
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, Duration maxWait,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> Thread.ofPlatform().daemon().name("password-hash-" + counter.incrementAndGet()).unstarted(task),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = timer(meterRegistry, "encode", "success");
+        this.encodeRejectedTimer = timer(meterRegistry, "encode", "rejected");
+        this.matchesTimer = timer(meterRegistry, "matches", "success");
+        this.matchesRejectedTimer = timer(meterRegistry, "matches", "rejected");
+        Gauge.builder("password.hash.queue.depth", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(encodeTimer, encodeRejectedTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesTimer, matchesRejectedTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return executor.getQueue().size() * 2 < queueCapacity && delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Timer timer, Timer rejectedTimer, Callable<T> hash) {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(hash);
+        } catch (RejectedExecutionException e) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new PasswordHashingUnavailableException("Password hashing is at capacity");
+        }
+        try {
+            T result = future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (TimeoutException e) {
+            // Still queued: drop it rather than spend a core on an answer nobody waits for, and give
+            // its queue slot back now instead of when a worker gets to the cancelled task
+            cancel(future);
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new PasswordHashingUnavailableException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Password hashing interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void cancel(Future<?> future) {
+        if (future.cancel(false)) {
+            executor.remove((Runnable) future);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Timer.builder("password.hash")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
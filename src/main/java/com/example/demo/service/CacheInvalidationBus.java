@@ -0,0 +1,225 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cluster-wide invalidation of in-process caches over PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * Writers call {@link #publish(String, String)}; inside a transaction the message is only
+ * queued after commit. Queued keys are coalesced and sent as one NOTIFY per batch window
+ * by a single thread that also LISTENs on the same dedicated connection (opened outside
+ * the Hikari pool). Each node ignores its own messages, so local caches are expected to be
+ * updated write-through by the caller. After a reconnect every subscriber is reset, since
+ * notifications sent while disconnected are lost.
+ */
+@Slf4j
+@Service
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    public static final String USERS = "users";
+    public static final String SUBSCRIPTIONS = "subscriptions";
+    public static final String REVIEWS = "reviews";
+    public static final String REVOCATIONS = "revocations";
+
+    private static final String CHANNEL = "cache_invalidation";
+    // NOTIFY payloads must stay below 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // Coalesced "topic:key" entries waiting for the next flush
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.batch-window:10ms}")
+    private Duration batchWindow;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public CacheInvalidationBus(DataSourceProperties dataSourceProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    public void subscribe(String topic, Consumer<String> onInvalidate, Runnable onReset) {
+        subscribers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>())
+                .add(new Subscriber(onInvalidate, onReset));
+    }
+
+    /**
+     * Tells the other nodes to drop {@code key} from their {@code topic} cache.
+     */
+    public void publish(String topic, String key) {
+        if (!running) {
+            return;
+        }
+        String entry = topic + ":" + key;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.add(entry);
+                }
+            });
+        } else {
+            pending.add(entry);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || !dataSourceProperties.determineUrl().startsWith("jdbc:postgresql:")) {
+            log.info("Cache invalidation bus disabled, caches stay node-local");
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("cache-invalidation-bus").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    resetAll();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int waitMillis = (int) Math.max(1, batchWindow.toMillis());
+                while (running) {
+                    flush(connection);
+                    PGNotification[] notifications = pgConnection.getNotifications(waitMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation connection lost, reconnecting: {}", e.getMessage());
+                reconnect = true;
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flush(Connection connection) throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> drained = new ArrayList<>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        int payloadBytes = nodeId.length();
+        for (String entry : drained) {
+            int entryBytes = entry.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (payloadBytes + entryBytes > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(nodeId);
+                payloadBytes = nodeId.length();
+            }
+            payload.append('\n').append(entry);
+            payloadBytes += entryBytes;
+        }
+        payloads.add(payload.toString());
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (String p : payloads) {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, p);
+                statement.executeQuery().close();
+            }
+        } catch (SQLException e) {
+            // Keep them for the next connection instead of silently dropping them
+            pending.addAll(drained);
+            throw e;
+        }
+    }
+
+    private void apply(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines[0].equals(nodeId)) {
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            int separator = lines[i].indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            String topic = lines[i].substring(0, separator);
+            String key = lines[i].substring(separator + 1);
+            for (Subscriber subscriber : subscribers.getOrDefault(topic, List.of())) {
+                try {
+                    subscriber.onInvalidate().accept(key);
+                } catch (RuntimeException e) {
+                    log.warn("Cache invalidation of {}:{} failed", topic, key, e);
+                }
+            }
+        }
+    }
+
+    private void resetAll() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.onReset().run()));
+    }
+
+    private record Subscriber(Consumer<String> onInvalidate, Runnable onReset) {
+    }
+}
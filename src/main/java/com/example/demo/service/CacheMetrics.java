@@ -0,0 +1,33 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes hits, misses, evictions and size of the in-process caches as the standard
+ * {@code cache.*} meters, tagged by cache name. The counters are read from Caffeine's own
+ * statistics at scrape time, so lookups pay nothing extra.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheMetrics implements MeterBinder {
+
+    private final UserCache userCache;
+    private final EntitlementCache entitlementCache;
+    private final JwtService jwtService;
+    private final IdempotencyService idempotencyService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, userCache.emailCache(), "users.by-email");
+        CaffeineCacheMetrics.monitor(registry, userCache.idCache(), "users.by-id");
+        CaffeineCacheMetrics.monitor(registry, entitlementCache.cache(), "entitlements");
+        CaffeineCacheMetrics.monitor(registry, idempotencyService.responseCache(), "idempotency");
+        if (jwtService.claimsCache() != null) {
+            CaffeineCacheMetrics.monitor(registry, jwtService.claimsCache(), "jwt.claims");
+        }
+    }
+}
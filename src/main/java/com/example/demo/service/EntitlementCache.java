@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.Entitlement;
+import com.example.demo.repository.SubscriptionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Subscription entitlement per user id, so status checks need no database round trip.
+ * <p>
+ * An entry expires by itself at its subscription's end date, or after {@code max-ttl} as a
+ * safety net; users without a subscription are cached for {@code negative-ttl}. Writers call
+ * {@link #onSubscriptionChanged} inside their transaction: the local entry is replaced after
+ * commit and the other nodes drop theirs over the {@link CacheInvalidationBus}.
+ */
+@Service
+public class EntitlementCache {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<Long, Entitlement> byUserId;
+
+    public EntitlementCache(
+            SubscriptionRepository subscriptionRepository,
+            CacheInvalidationBus invalidationBus,
+            @Value("${cache.entitlements.max-size:10000}") long maxSize,
+            @Value("${cache.entitlements.max-ttl:1h}") Duration maxTtl,
+            @Value("${cache.entitlements.negative-ttl:10m}") Duration negativeTtl
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.invalidationBus = invalidationBus;
+        this.byUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilEndDate(maxTtl, negativeTtl))
+                .recordStats()
+                .build();
+        invalidationBus.subscribe(CacheInvalidationBus.SUBSCRIPTIONS,
+                userId -> byUserId.invalidate(Long.valueOf(userId)), byUserId::invalidateAll);
+    }
+
+    public Entitlement find(Long userId) {
+        return byUserId.get(userId, id -> subscriptionRepository.findEntitlement(id).orElse(Entitlement.NONE));
+    }
+
+    /**
+     * Records the user's new entitlement, or null when it is unknown and has to be reloaded.
+     */
+    public void onSubscriptionChanged(Long userId, Entitlement entitlement) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Evict now so nothing reloads the old row into the cache before commit
+            byUserId.invalidate(userId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED && entitlement != null) {
+                        byUserId.put(userId, entitlement);
+                    } else {
+                        byUserId.invalidate(userId);
+                    }
+                }
+            });
+        } else if (entitlement != null) {
+            byUserId.put(userId, entitlement);
+        } else {
+            byUserId.invalidate(userId);
+        }
+        invalidationBus.publish(CacheInvalidationBus.SUBSCRIPTIONS, userId.toString());
+    }
+
+    Cache<Long, Entitlement> cache() {
+        return byUserId;
+    }
+
+    public CacheStats stats() {
+        return byUserId.stats();
+    }
+
+    private record UntilEndDate(Duration maxTtl, Duration negativeTtl) implements Expiry<Long, Entitlement> {
+
+        @Override
+        public long expireAfterCreate(Long userId, Entitlement entitlement, long currentTime) {
+            if (entitlement.endDate() == null) {
+                return negativeTtl.toNanos();
+            }
+            Duration remaining = Duration.between(LocalDateTime.now(), entitlement.endDate());
+            if (remaining.isNegative()) {
+                // Ended but not flipped by the expiry scheduler yet: keep it briefly, then recheck
+                return Duration.ofSeconds(1).toNanos();
+            }
+            return Math.min(remaining.toNanos(), maxTtl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(Long userId, Entitlement entitlement, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, entitlement, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long userId, Entitlement entitlement, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.exc.JacksonIOException;
+import tools.jackson.core.io.SerializedString;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Full-table dumps for finance and support, streamed as NDJSON or CSV.
+ * <p>
+ * Nothing is materialized: rows are read in primary key order through a forward-only cursor,
+ * {@code export.fetch-size} rows per round trip (the PostgreSQL driver only honours a fetch
+ * size inside a transaction, hence the read-only one around each export), and every value is
+ * written straight into one fixed-size buffer in front of the response (NDJSON through a single
+ * Jackson generator per export). Memory stays flat
+ * whatever the table size. Because rows come in id order, an interrupted export is resumed by
+ * passing the last id received as {@code afterId}.
+ */
+@Service
+public class ExportService {
+
+    public enum Table {
+        PAYMENTS("payments", "id, user_id, razorpay_order_id, razorpay_payment_id, amount, currency, status, created_at"),
+        SUBSCRIPTIONS("subscriptions", "id, user_id, payment_id, plan_name, amount, start_date, end_date, active, created_at"),
+        REVIEWS("reviews", "id, user_name, rating, massage, created_at");
+
+        private final String name;
+        private final String columns;
+
+        Table(String name, String columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        public static Table from(String name) {
+            return Arrays.stream(values()).filter(table -> table.name.equals(name)).findFirst().orElse(null);
+        }
+
+        public String tableName() {
+            return name;
+        }
+
+        private String sql(boolean limited) {
+            return "select " + columns + " from " + name + " where id > ? order by id" + (limited ? " limit ?" : "");
+        }
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format from(String name) {
+            return Arrays.stream(values()).filter(format -> format.extension.equalsIgnoreCase(name)).findFirst().orElse(null);
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    private static final int TEXT = 0;
+    private static final int NUMBER = 1;
+    private static final int BOOLEAN = 2;
+    private static final int TIMESTAMP = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final int bufferSize;
+    private final ObjectWriter ndjsonWriter;
+
+    public ExportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            JsonMapper jsonMapper,
+            @Value("${export.fetch-size:1000}") int fetchSize,
+            @Value("${export.buffer-size:65536}") int bufferSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.bufferSize = bufferSize;
+        // Rows are separated by the newline written after each of them, not by Jackson's default space
+        this.ndjsonWriter = jsonMapper.writer().withRootValueSeparator((SerializableString) null);
+    }
+
+    /**
+     * Writes the rows of {@code table} with an id above {@code afterId}, at most {@code limit}
+     * of them (0 for all), and returns how many were written.
+     */
+    public long export(Table table, Format format, long afterId, long limit, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+        JsonGenerator json = format == Format.NDJSON ? ndjsonWriter.createGenerator(writer) : null;
+        ResultSetExtractor<Long> rowWriter = resultSet -> json != null ? writeNdjson(resultSet, json) : writeCsv(resultSet, writer);
+        Long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        table.sql(limit > 0), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, afterId);
+                if (limit > 0) {
+                    statement.setLong(2, limit);
+                }
+                return statement;
+            }, rowWriter));
+        } catch (UncheckedIOException e) {
+            // The client went away; the transaction is already rolled back and the connection returned
+            throw e.getCause();
+        } catch (JacksonIOException e) {
+            throw e.getCause();
+        }
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+        return rows == null ? 0 : rows;
+    }
+
+    private static long writeNdjson(ResultSet resultSet, JsonGenerator json) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int[] kinds = kinds(metaData);
+        // Keys are the same on every row, so quote them once
+        SerializableString[] keys = new SerializableString[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            keys[i] = new SerializedString(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+        }
+
+        long rows = 0;
+        while (resultSet.next()) {
+            json.writeStartObject();
+            for (int i = 1; i <= columnCount; i++) {
+                json.writeName(keys[i]);
+                String value = read(resultSet, i, kinds[i]);
+                if (value == null) {
+                    json.writeNull();
+                } else if (kinds[i] == NUMBER) {
+                    json.writeNumber(value);
+                } else if (kinds[i] == BOOLEAN) {
+                    json.writeBoolean(Boolean.parseBoolean(value));
+                } else {
+                    json.writeString(value);
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+            rows++;
+        }
+        return rows;
+    }
+
+    private static long writeCsv(ResultSet resultSet, Writer out) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        int[] kinds = kinds(metaData);
+
+        long rows = 0;
+        try {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    out.write(',');
+                }
+                out.write(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+            }
+            out.write("\r\n");
+            while (resultSet.next()) {
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        out.write(',');
+                    }
+                    writeCsvValue(out, resultSet, i, kinds[i]);
+                }
+                out.write("\r\n");
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private static int[] kinds(ResultSetMetaData metaData) throws SQLException {
+        int[] kinds = new int[metaData.getColumnCount() + 1];
+        for (int i = 1; i < kinds.length; i++) {
+            kinds[i] = kindOf(metaData.getColumnType(i));
+        }
+        return kinds;
+    }
+
+    private static int kindOf(int sqlType) {
+        return switch (sqlType) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT,
+                 Types.DOUBLE, Types.FLOAT, Types.REAL, Types.NUMERIC, Types.DECIMAL -> NUMBER;
+            case Types.BOOLEAN, Types.BIT -> BOOLEAN;
+            case Types.TIMESTAMP -> TIMESTAMP;
+            default -> TEXT;
+        };
+    }
+
+    private static String read(ResultSet resultSet, int column, int kind) throws SQLException {
+        return switch (kind) {
+            case BOOLEAN -> {
+                boolean value = resultSet.getBoolean(column);
+                yield resultSet.wasNull() ? null : Boolean.toString(value);
+            }
+            case TIMESTAMP -> {
+                LocalDateTime value = resultSet.getObject(column, LocalDateTime.class);
+                yield value == null ? null : value.toString();
+            }
+            default -> resultSet.getString(column);
+        };
+    }
+
+    // RFC 4180: quote fields containing a separator, quote or line break, doubling inner quotes
+    private static void writeCsvValue(Writer out, ResultSet resultSet, int column, int kind) throws SQLException, IOException {
+        String value = read(resultSet, column, kind);
+        if (value == null) {
+            return;
+        }
+        if (kind != TEXT || !needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Circuit breaker, bulkhead and per-operation timeout around calls to a remote gateway,
+ * plus optional hedging for idempotent reads.
+ * <p>
+ * Calls run on {@code executor} and the caller waits at most the operation's timeout. The
+ * bulkhead permit is held by the running call, not by the caller, so calls abandoned after a
+ * timeout still count against the concurrency limit until they really finish.
+ * Latency per operation and outcome is recorded as {@code gateway.calls} and the breaker
+ * state as {@code gateway.circuit.state} (0 closed, 1 half-open, 2 open).
+ */
+public class GatewayResilience {
+
+    public enum Outcome { SUCCESS, FAILURE, CLIENT_ERROR, TIMEOUT, REJECTED, CIRCUIT_OPEN }
+
+    private final String name;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    // Failures that say nothing about the gateway's health, e.g. validation errors
+    private final Predicate<Throwable> isClientError;
+    private final Map<String, Map<Outcome, Timer>> timers = new ConcurrentHashMap<>();
+
+    public GatewayResilience(String name, Bulkhead bulkhead, CircuitBreaker circuitBreaker, ExecutorService executor,
+                             MeterRegistry meterRegistry, Predicate<Throwable> isClientError) {
+        this.name = name;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.isClientError = isClientError;
+        Gauge.builder("gateway.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .tag("gateway", name)
+                .register(meterRegistry);
+        Gauge.builder("gateway.circuit.failure.rate", circuitBreaker, CircuitBreaker::failureRate)
+                .tag("gateway", name)
+                .register(meterRegistry);
+        Gauge.builder("gateway.bulkhead.in.flight", bulkhead, Bulkhead::inFlight)
+                .tag("gateway", name)
+                .register(meterRegistry);
+    }
+
+    public <T, E extends Exception> T call(String operation, Duration timeout, Bulkhead.Call<T, E> call) throws E {
+        return call(operation, timeout, null, call);
+    }
+
+    /**
+     * Like {@link #call(String, Duration, Bulkhead.Call)}, but if the first attempt has not finished
+     * after {@code hedgeDelay} a second one is started and the first success wins.
+     * Only for idempotent operations.
+     */
+    public <T, E extends Exception> T call(String operation, Duration timeout, Duration hedgeDelay,
+                                           Bulkhead.Call<T, E> call) throws E {
+        long start = System.nanoTime();
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, Outcome.CIRCUIT_OPEN, start);
+            throw new GatewayUnavailableException(name + " circuit is open");
+        }
+        try {
+            T result = hedgeDelay == null
+                    ? await(submit(call), timeout.toNanos())
+                    : awaitHedged(call, timeout.toNanos(), hedgeDelay.toNanos());
+            circuitBreaker.onSuccess();
+            record(operation, Outcome.SUCCESS, start);
+            return result;
+        } catch (GatewayTimeoutException e) {
+            circuitBreaker.onFailure();
+            record(operation, Outcome.TIMEOUT, start);
+            throw e;
+        } catch (GatewayUnavailableException e) {
+            // Local saturation says nothing about the gateway
+            circuitBreaker.onIgnored();
+            record(operation, Outcome.REJECTED, start);
+            throw e;
+        } catch (Exception e) {
+            if (isClientError.test(e)) {
+                circuitBreaker.onSuccess();
+                record(operation, Outcome.CLIENT_ERROR, start);
+            } else {
+                circuitBreaker.onFailure();
+                record(operation, Outcome.FAILURE, start);
+            }
+            throw e;
+        }
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private <T, E extends Exception> CompletableFuture<T> submit(Bulkhead.Call<T, E> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                future.complete(bulkhead.execute(call));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        // Interrupt the abandoned call when the caller gives up on it
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    private <T, E extends Exception> T awaitHedged(Bulkhead.Call<T, E> call, long timeoutNanos, long hedgeDelayNanos)
+            throws E {
+        long deadline = System.nanoTime() + timeoutNanos;
+        CompletableFuture<T> primary = submit(call);
+        try {
+            return primary.get(Math.min(hedgeDelayNanos, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // fall through and hedge
+        } catch (ExecutionException e) {
+            return await(primary, 0);
+        } catch (InterruptedException e) {
+            primary.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new GatewayUnavailableException(name + " call interrupted");
+        }
+
+        CompletableFuture<T> hedge = submit(call);
+        CompletableFuture<T> firstSuccess = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((result, error) -> {
+                if (error == null) {
+                    firstSuccess.complete(result);
+                } else if (failed.incrementAndGet() == 2) {
+                    firstSuccess.completeExceptionally(error);
+                }
+            });
+        }
+        try {
+            return await(firstSuccess, Math.max(0, deadline - System.nanoTime()));
+        } finally {
+            primary.cancel(true);
+            hedge.cancel(true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T await(CompletableFuture<T> future, long timeoutNanos) throws E {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new GatewayTimeoutException(name + " did not answer within " + Duration.ofNanos(timeoutNanos));
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new GatewayUnavailableException(name + " call interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+
+    private void record(String operation, Outcome outcome, long startNanos) {
+        timers.computeIfAbsent(operation, this::registerTimers)
+                .get(outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // All outcomes up front so the hot path is two map lookups and no meter id allocation
+    private Map<Outcome, Timer> registerTimers(String operation) {
+        Map<Outcome, Timer> byOutcome = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            byOutcome.put(outcome, Timer.builder("gateway.calls")
+                    .tag("gateway", name)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        return byOutcome;
+    }
+}
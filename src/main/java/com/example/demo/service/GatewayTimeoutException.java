@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * The gateway did not answer within the operation's timeout. Unlike other
+ * {@link GatewayUnavailableException}s the remote side may still have acted on the request.
+ */
+public class GatewayTimeoutException extends GatewayUnavailableException {
+
+    public GatewayTimeoutException(String message) {
+        super(message);
+    }
+}
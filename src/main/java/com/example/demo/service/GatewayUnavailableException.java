@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Thrown instead of calling the payment gateway when it is saturated or known to be failing.
+ * Controllers answer it with 503 so clients back off rather than pile up.
+ */
+public class GatewayUnavailableException extends RuntimeException {
+
+    public GatewayUnavailableException(String message) {
+        super(message);
+    }
+}
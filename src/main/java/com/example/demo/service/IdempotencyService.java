@@ -0,0 +1,214 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.IdempotencyRecord;
+import com.example.demo.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for endpoints that clients retry.
+ * <p>
+ * Successful responses are stored in two tiers: a bounded in-memory map in front of the
+ * {@code idempotency_keys} table, both expiring after {@code idempotency.ttl}. A retry with the
+ * same key gets the stored response without touching the gateway or the database. Concurrent
+ * duplicates on this node wait for the first execution; a duplicate arriving on another node
+ * while the first is still running gets 409. Failed executions release the key so the client
+ * can retry them, and a key whose node died mid-request is taken over once its
+ * {@code idempotency.lease} has run out.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private final IdempotencyRecordRepository repository;
+    private final JsonMapper jsonMapper;
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    @Value("${idempotency.wait-timeout:30s}")
+    private Duration waitTimeout;
+
+    // Longer than any request can run, so only keys of requests that died are taken over
+    @Value("${idempotency.lease:1m}")
+    private Duration lease;
+
+    public IdempotencyService(
+            IdempotencyRecordRepository repository,
+            JsonMapper jsonMapper,
+            @Value("${idempotency.memory.max-size:10000}") long maxSize,
+            @Value("${idempotency.ttl:24h}") Duration ttl
+    ) {
+        this.repository = repository;
+        this.jsonMapper = jsonMapper;
+        this.ttl = ttl;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilExpiresAt())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Runs {@code action} at most once per (scope, key). Without a key the action simply runs.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String id = scope + "|" + key;
+        String requestHash = DigestUtils.md5DigestAsHex(jsonMapper.writeValueAsBytes(request));
+
+        StoredResponse stored = completed.getIfPresent(id);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return awaitRunning(running, requestHash);
+        }
+        try {
+            return executeOnce(id, requestHash, action, mine);
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    private ResponseEntity<?> executeOnce(String id, String requestHash, Supplier<ResponseEntity<?>> action,
+                                          CompletableFuture<StoredResponse> mine) {
+        // Also identifies this claim; the column keeps microseconds
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (repository.claim(id, requestHash, now, now.plus(ttl), now.minus(lease)) == 0) {
+            // Already known: either finished earlier (evicted from memory) or running on another node
+            IdempotencyRecord record = repository.findById(id).orElse(null);
+            mine.complete(null);
+            if (record != null && "COMPLETED".equals(record.getStatus()) && record.getExpiresAt().isAfter(now)) {
+                StoredResponse fromDb = new StoredResponse(record.getRequestHash(), record.getResponseStatus(),
+                        record.getResponseContentType(), record.getResponseBody(), record.getExpiresAt());
+                completed.put(id, fromDb);
+                return replay(fromDb, requestHash);
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("A request with this Idempotency-Key is in progress");
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            repository.release(id, now);
+            mine.complete(null);
+            throw e;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            repository.release(id, now);
+            mine.complete(null);
+            return response;
+        }
+
+        StoredResponse result = store(requestHash, response, now.plus(ttl));
+        // 0 if the lease ran out and another request took the key over; that one's response is kept
+        if (repository.complete(id, now, result.status(), result.contentType(), result.body()) > 0) {
+            completed.put(id, result);
+        }
+        mine.complete(result);
+        return response;
+    }
+
+    private ResponseEntity<?> awaitRunning(CompletableFuture<StoredResponse> running, String requestHash) {
+        try {
+            StoredResponse result = running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (result == null) {
+                // The first execution failed or was resolved elsewhere; let the client retry it
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("The original request with this Idempotency-Key did not complete, retry it");
+            }
+            return replay(result, requestHash);
+        } catch (TimeoutException | ExecutionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("A request with this Idempotency-Key is in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("A request with this Idempotency-Key is in progress");
+        }
+    }
+
+    private StoredResponse store(String requestHash, ResponseEntity<?> response, LocalDateTime expiresAt) {
+        Object body = response.getBody();
+        if (body == null || body instanceof String) {
+            return new StoredResponse(requestHash, response.getStatusCode().value(), null, (String) body, expiresAt);
+        }
+        return new StoredResponse(requestHash, response.getStatusCode().value(), MediaType.APPLICATION_JSON_VALUE,
+                new String(jsonMapper.writeValueAsBytes(body), StandardCharsets.UTF_8), expiresAt);
+    }
+
+    private static ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.unprocessableEntity().body("Idempotency-Key was already used with a different request");
+        }
+        var builder = ResponseEntity.status(stored.status()).header("Idempotent-Replayed", "true");
+        if (stored.contentType() != null) {
+            builder.contentType(MediaType.parseMediaType(stored.contentType()));
+        }
+        return builder.body(stored.body());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.sweep-interval:1h}")
+    public void deleteExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    Cache<String, ?> responseCache() {
+        return completed;
+    }
+
+    private record StoredResponse(String requestHash, int status, String contentType, String body,
+                                  LocalDateTime expiresAt) {
+    }
+
+    // Memory copies expire with their row, also when they were loaded from the table late in its life
+    private static final class UntilExpiresAt implements Expiry<String, StoredResponse> {
+
+        @Override
+        public long expireAfterCreate(String id, StoredResponse response, long currentTime) {
+            return Math.max(0, Duration.between(LocalDateTime.now(), response.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, StoredResponse response, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, response, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, StoredResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package com.example.demo.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
@@ -18,17 +31,48 @@ public class JwtService {
 
     private static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
 
+    // Request attribute under which JwtAuthenticationFilter stores the verified claims
+    public static final String CLAIMS_ATTRIBUTE = "com.example.demo.service.JwtService.CLAIMS";
+
+    private final Key signInKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private final JwtParser jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+
+    // Verified claims keyed by SHA-256 of the token, each entry dropped at the token's own expiry.
+    // Null when the cache is disabled (max-size = 0).
+    private final Cache<String, Claims> verifiedClaims;
+    private final Duration tokenLifetime;
+    // Signature checks only; cache hits are counted by the claims cache's own metrics
+    private final Timer parseTimer;
+
+    public JwtService(
+            MeterRegistry meterRegistry,
+            @Value("${jwt.claims-cache.max-size:10000}") long claimsCacheMaxSize,
+            @Value("${jwt.expiration:24h}") Duration tokenLifetime
+    ) {
+        this.tokenLifetime = tokenLifetime;
+        this.verifiedClaims = claimsCacheMaxSize > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(claimsCacheMaxSize)
+                        .expireAfter(new ClaimsExpiry())
+                        .recordStats()
+                        .build()
+                : null;
+        this.parseTimer = Timer.builder("jwt.parse").register(meterRegistry);
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
+    // Every token carries a random id (jti) so it can be revoked on its own
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         return Jwts.builder()
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + tokenLifetime.toMillis()))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -36,26 +80,87 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    public Duration tokenLifetime() {
+        return tokenLifetime;
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
+    }
+
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSignInKey()).build()
-                .parseClaimsJws(token).getBody();
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(verifyToken(token));
+    }
+
+    /**
+     * Verifies the signature and expiry of the token and returns its claims.
+     * Repeated calls for the same token are served from the verified-claims cache; each call gets
+     * its own copy, so a caller changing the claims cannot change them for later requests.
+     * Throws the usual {@link io.jsonwebtoken.JwtException} subtypes for invalid tokens.
+     */
+    public Claims verifyToken(String token) {
+        if (verifiedClaims == null) {
+            return parse(token);
+        }
+        String digest = digest(token);
+        Claims claims = verifiedClaims.getIfPresent(digest);
+        if (claims == null) {
+            claims = parse(token);
+            if (claims.getExpiration() != null) {
+                verifiedClaims.put(digest, claims);
+            }
+        }
+        return Jwts.claims(claims);
+    }
+
+    Cache<String, Claims> claimsCache() {
+        return verifiedClaims;
+    }
+
+    // Invalid tokens are timed too: they cost the same signature check
+    private Claims parse(String token) {
+        long start = System.nanoTime();
+        try {
+            return jwtParser.parseClaimsJws(token).getBody();
+        } finally {
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
-    private Key getSignInKey() {
-        return Keys.hmacShaKeyFor(
-                SECRET_KEY.getBytes(StandardCharsets.UTF_8)
-        );
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class ClaimsExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when the password-hashing pool is full or the caller waited too long for it.
+ * Controllers answer it with 503 so clients retry later instead of queueing behind BCrypt.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.PaymentRepository;
+import com.razorpay.Order;
+import com.razorpay.RazorpayException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resolves payment intents left PENDING when the process died between the phases of
+ * {@link PaymentService#createOrder}: the order is looked up at Razorpay by its receipt and
+ * attached if it exists, otherwise the intent is marked FAILED.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentIntentSweeper {
+
+    private final PaymentRepository paymentRepository;
+    private final RazorpayGateway razorpayGateway;
+
+    @Value("${payment.intent-sweep.stale-after:10m}")
+    private Duration staleAfter;
+
+    @Scheduled(fixedDelayString = "${payment.intent-sweep.interval:5m}")
+    public void sweep() {
+        List<Long> orphans = paymentRepository.findIdsByStatusAndCreatedAtBefore(
+                "PENDING", LocalDateTime.now().minus(staleAfter));
+
+        for (Long paymentId : orphans) {
+            try {
+                List<Order> orders = razorpayGateway.findOrdersByReceipt(PaymentService.receiptFor(paymentId));
+                if (orders.isEmpty()) {
+                    paymentRepository.markIntentFailed(paymentId);
+                } else {
+                    paymentRepository.attachOrder(paymentId, orders.get(0).get("id"));
+                }
+            } catch (RazorpayException | GatewayUnavailableException e) {
+                // Leave it PENDING and retry on the next sweep
+                log.warn("Could not resolve payment intent {}: {}", paymentId, e.getMessage());
+            }
+        }
+    }
+}
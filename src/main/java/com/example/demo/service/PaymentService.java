@@ -1,17 +1,16 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.Entitlement;
+import com.example.demo.dto.PaymentSummary;
 import com.example.demo.entity.Payment;
 import com.example.demo.entity.Subscription;
 import com.example.demo.entity.User;
 import com.example.demo.repository.PaymentRepository;
 import com.example.demo.repository.SubscriptionRepository;
 import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
-import com.razorpay.Utils;
 import lombok.RequiredArgsConstructor;
 import org.json.JSONObject;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,37 +21,59 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PaymentService {
 
-    private final RazorpayClient razorpayClient;
+    private final RazorpayGateway razorpayGateway;
     private final PaymentRepository paymentRepository;
     private final SubscriptionRepository subscriptionRepository;
-    @Value("${razorpay.key.secret}")
-    private String keySecret;
-
-    @Transactional
+    private final EntitlementCache entitlementCache;
+    private final SignatureVerifier signatureVerifier;
+
+    /**
+     * Creates the Razorpay order in three phases so that no JDBC connection is held while
+     * waiting on the gateway: persist a PENDING intent, call Razorpay, then attach the order id.
+     * Intents left PENDING by a crash in between are resolved by {@link PaymentIntentSweeper}.
+     */
     public String createOrder(Double amount, User user) throws RazorpayException {
         // Razorpay expects amount in paise
         int amountInPaise = (int) (amount * 100);
 
+        // 1. Persist the intent (short transaction)
+        Payment payment = paymentRepository.save(Payment.builder()
+                .amount(amount)
+                .currency("INR")
+                .status("PENDING")
+                .user(user)
+                .build());
+
         JSONObject orderRequest = new JSONObject();
         orderRequest.put("amount", amountInPaise);
         orderRequest.put("currency", "INR");
-        orderRequest.put("receipt", "recp_" + System.currentTimeMillis());
+        orderRequest.put("receipt", receiptFor(payment.getId()));
+
+        // 2. Call Razorpay API with no connection held
+        Order order;
+        try {
+            order = razorpayGateway.createOrder(orderRequest);
+        } catch (GatewayTimeoutException e) {
+            // Razorpay may still have created the order: leave the intent PENDING for the sweeper
+            throw e;
+        } catch (RazorpayException | GatewayUnavailableException e) {
+            paymentRepository.markIntentFailed(payment.getId());
+            throw e;
+        }
 
-        // Call Razorpay API
-        Order order = razorpayClient.orders.create(orderRequest);
+        // 3. Attach the order id and move to 'CREATED' (short transaction)
+        paymentRepository.attachOrder(payment.getId(), order.get("id"));
 
-        // Save transaction to DB with 'CREATED' status
-        Payment payment = Payment.builder()
-                .razorpayOrderId(order.get("id"))
-                .amount(amount)
-                .currency("INR")
-                .status("CREATED")
-                .user(user)
-                .build();
+        return order.toString();
+    }
 
-        paymentRepository.save(payment);
+    // The receipt ties a Razorpay order back to its intent, which is how the sweeper recovers orphans
+    public static String receiptFor(Long paymentId) {
+        return "recp_" + paymentId;
+    }
 
-        return order.toString();
+    public boolean isWebhookSignatureValid(byte[] payload, String signature) {
+        return signatureVerifier.verifyWebhook(payload, signature);
     }
 
     @Transactional
@@ -70,77 +91,55 @@ public class PaymentService {
         }
 
         // 1. Verify signature
-        JSONObject options = new JSONObject();
-        options.put("razorpay_order_id", orderId);
-        options.put("razorpay_payment_id", paymentId);
-        options.put("razorpay_signature", signature);
-
-        boolean isValid = Utils.verifyPaymentSignature(options, keySecret);
+        boolean isValid = signatureVerifier.verifyPayment(orderId, paymentId, signature);
 
         if (!isValid) {
             throw new RuntimeException("Invalid payment signature");
         }
 
         // 2. Fetch payment from DB
-        Payment payment = paymentRepository.findByRazorpayOrderId(orderId)
+        PaymentSummary payment = paymentRepository.findSummaryByRazorpayOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Payment record not found"));
 
         // 3. Ownership check (IMPORTANT)
-        if (!payment.getUser().getId().equals(user.getId())) {
+        if (!payment.userId().equals(user.getId())) {
             throw new RuntimeException("Payment does not belong to this user");
         }
 
-        // 4. Update payment status
-        payment.setRazorpayPaymentId(paymentId);
-        payment.setRazorpaySignature(signature);
-        payment.setStatus("SUCCESS");
+        // 4. Update payment status; the webhook may have confirmed it already
+        if (paymentRepository.markSucceeded(payment.id(), paymentId, signature) == 0) {
+            return;
+        }
 
-        paymentRepository.save(payment);
         // 5. Create/Update Subscription
         createOrUpdateSubscription(payment, user);
     }
-    private void createOrUpdateSubscription(Payment payment, User user) {
+    private void createOrUpdateSubscription(PaymentSummary payment, User user) {
         // Deactivate old subscription if exists
-        subscriptionRepository.findByUserAndActiveTrue(user)
-                .ifPresent(sub -> {
-                    sub.setActive(false);
-                    subscriptionRepository.save(sub);
-                });
+        subscriptionRepository.deactivateActive(user.getId());
 
         // Determine plan name and duration from amount
-        String planName;
-        int durationMonths;
-
-        double amount = payment.getAmount();
-        if (amount == 1999.0) {
-            planName = "1 Month";
-            durationMonths = 1;
-        } else if (amount == 4999.0) {
-            planName = "3 Months";
-            durationMonths = 3;
-        } else if (amount == 9999.0) {
-            planName = "6 Months";
-            durationMonths = 6;
-        } else if (amount == 17999.0) {
-            planName = "12 Months";
-            durationMonths = 12;
-        } else {
-            throw new RuntimeException("Invalid plan amount");
-        }
+        double amount = payment.amount();
+        SubscriptionPlan plan = SubscriptionPlan.forAmount(amount)
+                .orElseThrow(() -> new RuntimeException("Invalid plan amount"));
 
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime endDate = now.plusMonths(durationMonths);
+        LocalDateTime endDate = now.plusMonths(plan.durationMonths());
 
         Subscription subscription = Subscription.builder()
                 .user(user)
-                .planName(planName)
+                .planName(plan.planName())
                 .amount(amount)
                 .startDate(now)
                 .endDate(endDate)
                 .active(true)
-                .payment(payment)
+                .payment(paymentRepository.getReferenceById(payment.id()))
                 .build();
 
         subscriptionRepository.save(subscription);
+
+        // Refresh the cached entitlement once this commits; other nodes drop theirs
+        entitlementCache.onSubscriptionChanged(user.getId(),
+                new Entitlement(subscription.getPlanName(), subscription.getStartDate(), subscription.getEndDate()));
     }
 }
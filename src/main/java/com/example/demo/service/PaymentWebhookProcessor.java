@@ -0,0 +1,182 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.Entitlement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a batch of Razorpay webhook events in one transaction with a fixed number of
+ * statements, however many events the batch holds: payments move to SUCCESS or FAILED,
+ * confirmed payments get their subscription, and the inbox rows are marked processed.
+ * <p>
+ * Every write is conditional on the current status, so re-applying an event (a redelivery,
+ * the recovery sweep, or the client's own /verify call winning the race) changes nothing.
+ * That is also what lets {@link WebhookInbox} retry a failed batch one event at a time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentWebhookProcessor {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntitlementCache entitlementCache;
+
+    public record Event(String eventId, String eventType, String payload) {
+    }
+
+    public void apply(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        // Per order the strongest outcome wins: a capture after a failed attempt still confirms it
+        Map<String, String> capturedPaymentByOrder = new LinkedHashMap<>();
+        List<String> failedOrders = new ArrayList<>();
+        for (Event event : events) {
+            JSONObject payment = paymentEntity(event);
+            if (payment == null) {
+                continue;
+            }
+            String orderId = payment.optString("order_id", null);
+            if (orderId == null) {
+                continue;
+            }
+            switch (event.eventType()) {
+                case "payment.captured", "order.paid" -> capturedPaymentByOrder.put(orderId, payment.optString("id", null));
+                case "payment.failed" -> failedOrders.add(orderId);
+                default -> {
+                    // Not relevant to subscriptions, only marked processed
+                }
+            }
+        }
+        failedOrders.removeAll(capturedPaymentByOrder.keySet());
+
+        List<String> eventIds = events.stream().map(Event::eventId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ConfirmedPayment> confirmed = markSucceeded(capturedPaymentByOrder);
+            markFailed(failedOrders);
+            createSubscriptions(confirmed);
+            markProcessed(eventIds);
+        });
+    }
+
+    private static JSONObject paymentEntity(Event event) {
+        try {
+            JSONObject payload = new JSONObject(event.payload()).optJSONObject("payload");
+            JSONObject payment = payload == null ? null : payload.optJSONObject("payment");
+            return payment == null ? null : payment.optJSONObject("entity");
+        } catch (JSONException e) {
+            log.warn("Ignoring malformed webhook event {}", event.eventId());
+            return null;
+        }
+    }
+
+    // Only the payments this call moved to SUCCESS are returned
+    private List<ConfirmedPayment> markSucceeded(Map<String, String> capturedPaymentByOrder) {
+        if (capturedPaymentByOrder.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<ConfirmedPayment>>) connection -> {
+            Array orderIds = connection.createArrayOf("text", capturedPaymentByOrder.keySet().toArray());
+            Array paymentIds = connection.createArrayOf("text", capturedPaymentByOrder.values().toArray());
+            try (PreparedStatement statement = connection.prepareStatement("""
+                    update payments p
+                    set status = 'SUCCESS', razorpay_payment_id = v.payment_id
+                    from unnest(?::text[], ?::text[]) as v(order_id, payment_id)
+                    where p.razorpay_order_id = v.order_id and p.status <> 'SUCCESS'
+                    returning p.id, p.user_id, p.amount""")) {
+                statement.setArray(1, orderIds);
+                statement.setArray(2, paymentIds);
+                List<ConfirmedPayment> confirmed = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        confirmed.add(new ConfirmedPayment(rs.getLong(1), rs.getLong(2), rs.getDouble(3)));
+                    }
+                }
+                return confirmed;
+            }
+        });
+    }
+
+    private void markFailed(List<String> failedOrders) {
+        if (failedOrders.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "update payments set status = 'FAILED' where razorpay_order_id = any(?) and status in ('PENDING', 'CREATED')")) {
+                statement.setArray(1, connection.createArrayOf("text", failedOrders.toArray()));
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    private void createSubscriptions(List<ConfirmedPayment> confirmed) {
+        // Same rule as PaymentService: the latest payment of a user replaces the active subscription
+        Map<Long, ConfirmedPayment> latestByUser = new HashMap<>();
+        for (ConfirmedPayment payment : confirmed) {
+            if (SubscriptionPlan.forAmount(payment.amount()).isEmpty()) {
+                log.warn("Payment {} confirmed by webhook has no matching plan for amount {}", payment.id(), payment.amount());
+                continue;
+            }
+            latestByUser.merge(payment.userId(), payment, (a, b) -> a.id() > b.id() ? a : b);
+        }
+        if (latestByUser.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "update subscriptions set active = false where user_id = any(?) and active")) {
+                statement.setArray(1, connection.createArrayOf("bigint", latestByUser.keySet().toArray()));
+                return statement.executeUpdate();
+            }
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(latestByUser.size());
+        for (ConfirmedPayment payment : latestByUser.values()) {
+            SubscriptionPlan plan = SubscriptionPlan.forAmount(payment.amount()).orElseThrow();
+            LocalDateTime endDate = now.plusMonths(plan.durationMonths());
+            rows.add(new Object[]{
+                    payment.userId(), plan.planName(), payment.amount(), Timestamp.valueOf(now),
+                    Timestamp.valueOf(endDate), payment.id(), Timestamp.valueOf(now)
+            });
+            entitlementCache.onSubscriptionChanged(payment.userId(), new Entitlement(plan.planName(), now, endDate));
+        }
+        jdbcTemplate.batchUpdate("""
+                insert into subscriptions (id, user_id, plan_name, amount, start_date, end_date, active, payment_id, created_at)
+                values (nextval('subscriptions_seq'), ?, ?, ?, ?, ?, true, ?, ?)""", rows);
+    }
+
+    private void markProcessed(List<String> eventIds) {
+        jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "update webhook_events set processed_at = ? where event_id = any(?)")) {
+                statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                statement.setArray(2, connection.createArrayOf("text", eventIds.toArray()));
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    private record ConfirmedPayment(long id, long userId, double amount) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed token buckets, e.g. one per client IP, that refill one token every {@code refillPeriod}
+ * up to {@code capacity}.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (GCRA), so taking a token is one CAS and no lock is ever held. Keys are striped over
+ * independent shards to spread contention and to let the idle sweep work one shard at a time.
+ * A bucket whose full-again time has passed is indistinguishable from a new one, so
+ * {@link #evictIdle()} drops it without losing state. When a shard is still at
+ * {@code maxKeysPerShard} after that, requests for new keys are let through untracked.
+ */
+public class RateLimiter {
+
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final int maxKeysPerShard;
+    private final ConcurrentHashMap<String, AtomicLong>[] shards;
+    private final LongSupplier nanoClock;
+
+    public RateLimiter(int capacity, Duration refillPeriod, int shards, int maxKeysPerShard) {
+        this(capacity, refillPeriod, shards, maxKeysPerShard, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    RateLimiter(int capacity, Duration refillPeriod, int shards, int maxKeysPerShard, LongSupplier nanoClock) {
+        this.emissionNanos = refillPeriod.toNanos();
+        this.toleranceNanos = emissionNanos * capacity;
+        this.maxKeysPerShard = maxKeysPerShard;
+        this.nanoClock = nanoClock;
+        // Power of two, so the shard is picked with a mask
+        int count = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.shards = new ConcurrentHashMap[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Takes a token for {@code key}. Returns 0 when one was available, otherwise the nanoseconds
+     * until the next one is, without taking anything.
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = bucket(key, now);
+        if (bucket == null) {
+            return 0;
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt - now, 0) + now + emissionNanos;
+            long overdraft = next - now - toleranceNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely. Returns the number of keys still tracked.
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int remaining = 0;
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            shard.values().removeIf(bucket -> bucket.get() - now <= 0);
+            remaining += shard.size();
+        }
+        return remaining;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        ConcurrentHashMap<String, AtomicLong> shard = shards[spread(key.hashCode()) & (shards.length - 1)];
+        AtomicLong bucket = shard.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (shard.size() >= maxKeysPerShard) {
+            shard.values().removeIf(idle -> idle.get() - now <= 0);
+            if (shard.size() >= maxKeysPerShard) {
+                return null;
+            }
+        }
+        return shard.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    // Shards use the high bits so they do not line up with the maps' own bucket index
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 16;
+    }
+}
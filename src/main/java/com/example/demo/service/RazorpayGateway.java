@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import com.razorpay.Order;
+import com.razorpay.RazorpayClient;
+import com.razorpay.RazorpayException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single entry point for calls to Razorpay. Every call goes through {@link GatewayResilience}:
+ * a circuit breaker that fails fast while Razorpay is degraded, a bulkhead that keeps the number
+ * of in-flight calls bounded even with virtual threads, and a per-operation timeout (the SDK's
+ * own HTTP client is static and not configurable). Order lookups are idempotent and hedged.
+ */
+@Component
+public class RazorpayGateway {
+
+    private final RazorpayClient razorpayClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final GatewayResilience resilience;
+
+    @Value("${razorpay.timeout.create-order:10s}")
+    private Duration createOrderTimeout;
+
+    @Value("${razorpay.timeout.fetch-orders:5s}")
+    private Duration fetchOrdersTimeout;
+
+    @Value("${razorpay.hedge.delay:1s}")
+    private Duration hedgeDelay;
+
+    public RazorpayGateway(
+            RazorpayClient razorpayClient,
+            MeterRegistry meterRegistry,
+            @Value("${razorpay.bulkhead.max-concurrent:64}") int maxConcurrent,
+            @Value("${razorpay.bulkhead.max-wait:250ms}") Duration maxWait,
+            @Value("${razorpay.circuit.window-size:50}") int windowSize,
+            @Value("${razorpay.circuit.minimum-calls:20}") int minimumCalls,
+            @Value("${razorpay.circuit.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${razorpay.circuit.open-duration:30s}") Duration openDuration,
+            @Value("${razorpay.circuit.half-open-calls:3}") int halfOpenCalls
+    ) {
+        this.razorpayClient = razorpayClient;
+        this.resilience = new GatewayResilience(
+                "razorpay",
+                new Bulkhead("Razorpay", maxConcurrent, maxWait),
+                new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls),
+                executor,
+                meterRegistry,
+                RazorpayGateway::isClientError
+        );
+    }
+
+    public Order createOrder(JSONObject orderRequest) throws RazorpayException {
+        return resilience.call("orders.create", createOrderTimeout,
+                () -> razorpayClient.orders.create(orderRequest));
+    }
+
+    public List<Order> findOrdersByReceipt(String receipt) throws RazorpayException {
+        JSONObject query = new JSONObject();
+        query.put("receipt", receipt);
+        return resilience.call("orders.fetchAll", fetchOrdersTimeout, hedgeDelay,
+                () -> razorpayClient.orders.fetchAll(query));
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return resilience.circuitBreaker().state();
+    }
+
+    // Razorpay reports rejected input as "BAD_REQUEST_ERROR:<description>"; that is our fault, not an outage
+    private static boolean isClientError(Throwable error) {
+        return error instanceof RazorpayException
+                && error.getMessage() != null
+                && error.getMessage().startsWith("BAD_REQUEST_ERROR");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReviewCursor;
+import com.example.demo.dto.ReviewView;
+import com.example.demo.repository.ReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The first pages of the public review feed, kept as pre-encoded JSON and gzip bytes.
+ * <p>
+ * The snapshot is updated in memory when this node saves a review and rebuilt with a
+ * single query when another node reports a new review over the {@link CacheInvalidationBus}.
+ * Readers never trigger a rebuild; while no snapshot is available they fall back to the database.
+ */
+@Slf4j
+@Service
+public class ReviewFeedCache {
+
+    // Same as the feed queries: order by created_at desc, id desc
+    private static final Comparator<ReviewView> FEED_ORDER =
+            Comparator.comparing(ReviewView::createdAt).thenComparing(ReviewView::id).reversed();
+
+    private final ReviewRepository reviewRepository;
+    private final JsonMapper jsonMapper;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    // Not synchronized: a rebuild queries the database, which would pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Value("${reviews.page.default-size:20}")
+    private int pageSize;
+
+    @Value("${reviews.feed-cache.pages:3}")
+    private int cachedPages;
+
+    private volatile Snapshot snapshot;
+
+    public ReviewFeedCache(ReviewRepository reviewRepository, JsonMapper jsonMapper, CacheInvalidationBus invalidationBus) {
+        this.reviewRepository = reviewRepository;
+        this.jsonMapper = jsonMapper;
+        invalidationBus.subscribe(CacheInvalidationBus.REVIEWS, reviewId -> invalidate(), this::invalidate);
+    }
+
+    /**
+     * Returns the cached page that starts after {@code cursor} (null or empty for the first page),
+     * or null when that page is not cached.
+     */
+    public Page find(String cursor, int size) {
+        Snapshot current = snapshot;
+        if (current == null || size != pageSize) {
+            return null;
+        }
+        return current.pages().get(cursor == null ? "" : cursor);
+    }
+
+    // Called after a review was committed on this node
+    public void onReviewSaved(ReviewView review) {
+        lock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                scheduleRebuild();
+                return;
+            }
+            // A rebuild that ran after the commit already picked it up
+            if (current.head().stream().anyMatch(cached -> cached.id().equals(review.id()))) {
+                return;
+            }
+            // Commit order is not feed order: a review created earlier can commit after a newer one
+            List<ReviewView> head = new ArrayList<>(current.head().size() + 1);
+            head.addAll(current.head());
+            int position = 0;
+            while (position < head.size() && FEED_ORDER.compare(head.get(position), review) < 0) {
+                position++;
+            }
+            if (position == head.size() && head.size() >= pageSize * cachedPages) {
+                // Older than everything cached, so past the cached pages
+                return;
+            }
+            head.add(position, review);
+            snapshot = encode(head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        scheduleRebuild();
+    }
+
+    private void invalidate() {
+        snapshot = null;
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Review feed cache rebuild failed, serving from the database", e);
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        lock.lock();
+        try {
+            snapshot = encode(reviewRepository.findFeedFirstPage(Limit.of(pageSize * cachedPages)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot encode(List<ReviewView> reviews) {
+        List<ReviewView> head = reviews.size() > pageSize * cachedPages
+                ? List.copyOf(reviews.subList(0, pageSize * cachedPages))
+                : List.copyOf(reviews);
+
+        Map<String, Page> pages = new HashMap<>();
+        String cursor = "";
+        for (int from = 0; from < head.size() || from == 0; from += pageSize) {
+            List<ReviewView> items = head.subList(from, Math.min(from + pageSize, head.size()));
+            // Only a full page has a next cursor, same as the database path
+            String nextCursor = items.size() == pageSize
+                    ? ReviewCursor.after(items.get(items.size() - 1)).encode()
+                    : null;
+            byte[] json = jsonMapper.writeValueAsBytes(items);
+            String hash = DigestUtils.md5DigestAsHex(json);
+            pages.put(cursor, new Page(json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gz\"", nextCursor));
+            if (nextCursor == null) {
+                break;
+            }
+            cursor = nextCursor;
+        }
+        return new Snapshot(head, Map.copyOf(pages));
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public record Page(byte[] json, byte[] gzip, String etag, String gzipEtag, String nextCursor) {
+    }
+
+    private record Snapshot(List<ReviewView> head, Map<String, Page> pages) {
+    }
+}
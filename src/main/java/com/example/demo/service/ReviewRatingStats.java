@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RatingCount;
+import com.example.demo.dto.RatingSummary;
+import com.example.demo.entity.ReviewRatingCount;
+import com.example.demo.repository.ReviewRatingCountRepository;
+import com.example.demo.repository.ReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Average rating and 1-5 star histogram, maintained incrementally.
+ * <p>
+ * Each post bumps the persisted rollup row of its star in the review's own transaction and,
+ * after commit, a {@link LongAdder} per star in memory, so concurrent posts never share a lock.
+ * The rollup is rebuilt from the reviews table on startup; other nodes' posts are picked up by
+ * re-reading the five rollup rows when the {@link CacheInvalidationBus} reports them.
+ * <p>
+ * A reload must not overlap a local commit: the rows it reads might or might not include that
+ * post, and the increment might land on the old counters or the new ones. So each commit holds
+ * the read side of {@link #swapLock} from before the database commit until the increment is
+ * done, and a reload reads and swaps under the write side. Posts still share the lock only with
+ * reloads, which are coalesced and run one at a time.
+ */
+@Slf4j
+@Service
+public class ReviewRatingStats {
+
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    private final ReviewRepository reviewRepository;
+    private final ReviewRatingCountRepository ratingCountRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Index = star rating; swapped wholesale when reloaded from the rollup
+    private volatile LongAdder[] counts = newCounts();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+
+    public ReviewRatingStats(
+            ReviewRepository reviewRepository,
+            ReviewRatingCountRepository ratingCountRepository,
+            TransactionTemplate transactionTemplate,
+            CacheInvalidationBus invalidationBus
+    ) {
+        this.reviewRepository = reviewRepository;
+        this.ratingCountRepository = ratingCountRepository;
+        this.transactionTemplate = transactionTemplate;
+        invalidationBus.subscribe(CacheInvalidationBus.REVIEWS, reviewId -> reloadAsync(), this::reloadAsync);
+    }
+
+    public static boolean isValidRating(Integer rating) {
+        return rating != null && rating >= MIN_RATING && rating <= MAX_RATING;
+    }
+
+    // Must run inside the transaction that saves the review
+    public void record(int rating) {
+        ratingCountRepository.increment(rating);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                swapLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                counts[rating].increment();
+            }
+
+            // Also runs when the commit fails, or on rollback without beforeCommit
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    swapLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    public RatingSummary summary() {
+        LongAdder[] current = counts;
+        Map<Integer, Long> histogram = new LinkedHashMap<>();
+        long total = 0;
+        long sum = 0;
+        for (int rating = MIN_RATING; rating <= MAX_RATING; rating++) {
+            long count = current[rating].sum();
+            histogram.put(rating, count);
+            total += count;
+            sum += count * rating;
+        }
+        double average = total == 0 ? 0.0 : (double) sum / total;
+        return new RatingSummary(total, average, histogram);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int rating = MIN_RATING; rating <= MAX_RATING; rating++) {
+                ratingCountRepository.insertIfMissing(rating);
+            }
+            // Lock the rollup before counting so concurrent posts on other nodes queue behind the rebuild
+            ratingCountRepository.lockAll();
+            Map<Integer, Long> actual = new LinkedHashMap<>();
+            for (RatingCount row : reviewRepository.countByRating()) {
+                actual.put(row.rating(), row.reviewCount());
+            }
+            for (int rating = MIN_RATING; rating <= MAX_RATING; rating++) {
+                ratingCountRepository.overwrite(rating, actual.getOrDefault(rating, 0L));
+            }
+        });
+        reload();
+    }
+
+    // A burst of notifications queues one reload; one arriving mid-reload queues the next
+    private void reloadAsync() {
+        if (!reloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            reloadQueued.set(false);
+            reload();
+        }).exceptionally(e -> {
+            log.warn("Reloading review rating rollup failed", e);
+            return null;
+        });
+    }
+
+    // The transaction takes its connection before the write lock, so blocked commits holding
+    // every pooled connection cannot starve the reload that they are waiting for
+    void reload() {
+        transactionTemplate.executeWithoutResult(status -> {
+            swapLock.writeLock().lock();
+            try {
+                LongAdder[] fresh = newCounts();
+                for (ReviewRatingCount row : ratingCountRepository.findAll()) {
+                    if (isValidRating(row.getRating())) {
+                        fresh[row.getRating()].add(row.getReviewCount());
+                    }
+                }
+                counts = fresh;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        });
+    }
+
+    private static LongAdder[] newCounts() {
+        LongAdder[] adders = new LongAdder[MAX_RATING + 1];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReviewView;
+import com.example.demo.entity.Review;
+import com.example.demo.repository.ReviewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Service
+@RequiredArgsConstructor
+public class ReviewService {
+
+    private final ReviewRepository reviewRepository;
+    private final ReviewRatingStats ratingStats;
+    private final ReviewFeedCache reviewFeedCache;
+    private final CacheInvalidationBus invalidationBus;
+
+    @Transactional
+    public Review postReview(String userName, Integer rating, String massage) {
+        Review saved = reviewRepository.save(Review.builder()
+                .userName(userName)
+                .rating(rating)
+                .massage(massage)
+                // Column precision, so cursors built from memory match the ones read back from the database
+                .createdAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build());
+
+        // Rollup row is updated in the same transaction as the review
+        ratingStats.record(rating);
+
+        ReviewView view = new ReviewView(
+                saved.getId(), saved.getUserName(), saved.getRating(), saved.getMassage(), saved.getCreatedAt());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reviewFeedCache.onReviewSaved(view);
+            }
+        });
+        invalidationBus.publish(CacheInvalidationBus.REVIEWS, saved.getId().toString());
+        return saved;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * HMAC-SHA256 verification of Razorpay payment and webhook signatures.
+ * <p>
+ * Same result as {@code com.razorpay.Utils.verifyPaymentSignature} and
+ * {@code verifyWebhookSignature}, without their per-call cost: the keyed {@link Mac} is built
+ * once and reused, the signed message is fed as bytes and the hex signature is compared
+ * against the raw digest in constant time. The only allocation left per verification is the
+ * 32-byte digest the JDK's HMAC implementation creates internally.
+ * <p>
+ * Platform threads keep their own {@link State}; virtual threads are short-lived, so they
+ * borrow one from a shared pool instead of building a new one per request.
+ */
+@Component
+public class SignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_LENGTH = 32;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Mac paymentPrototype;
+    private final Mac webhookPrototype;
+    private final ThreadLocal<State> perThread = ThreadLocal.withInitial(this::newState);
+    private final ConcurrentLinkedQueue<State> pool = new ConcurrentLinkedQueue<>();
+
+    public SignatureVerifier(
+            @Value("${razorpay.key.secret}") String keySecret,
+            @Value("${razorpay.webhook.secret:}") String webhookSecret
+    ) {
+        this.paymentPrototype = keyedMac(keySecret);
+        this.webhookPrototype = webhookSecret.isEmpty() ? null : keyedMac(webhookSecret);
+    }
+
+    /**
+     * Checks the {@code razorpay_signature} returned by Checkout, i.e. HMAC of "orderId|paymentId".
+     */
+    public boolean verifyPayment(String orderId, String paymentId, String signature) {
+        if (signature == null || signature.length() != DIGEST_LENGTH * 2) {
+            return false;
+        }
+        State state = acquire();
+        try {
+            Mac mac = state.paymentMac;
+            update(mac, state, orderId);
+            mac.update((byte) '|');
+            update(mac, state, paymentId);
+            return matches(state, mac, signature);
+        } finally {
+            release(state);
+        }
+    }
+
+    /**
+     * Checks the {@code X-Razorpay-Signature} header against the raw request body.
+     * Always false when no webhook secret is configured.
+     */
+    public boolean verifyWebhook(byte[] payload, String signature) {
+        if (webhookPrototype == null || signature == null || signature.length() != DIGEST_LENGTH * 2) {
+            return false;
+        }
+        State state = acquire();
+        try {
+            Mac mac = state.webhookMac;
+            mac.update(payload);
+            return matches(state, mac, signature);
+        } finally {
+            release(state);
+        }
+    }
+
+    private static boolean matches(State state, Mac mac, String signature) {
+        try {
+            mac.doFinal(state.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC output buffer too small", e);
+        }
+        // Lower-case hex, as Razorpay sends it; no early exit on the first difference
+        int diff = 0;
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int b = state.digest[i] & 0xff;
+            diff |= HEX[b >>> 4] ^ signature.charAt(2 * i);
+            diff |= HEX[b & 0x0f] ^ signature.charAt(2 * i + 1);
+        }
+        return diff == 0;
+    }
+
+    // Ids and signed fields are ASCII; anything else takes the slow path
+    private static void update(Mac mac, State state, String value) {
+        int length = value.length();
+        if (length > state.scratch.length) {
+            mac.update(value.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                mac.update(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            state.scratch[i] = (byte) c;
+        }
+        mac.update(state.scratch, 0, length);
+    }
+
+    private State acquire() {
+        if (!Thread.currentThread().isVirtual()) {
+            return perThread.get();
+        }
+        State state = pool.poll();
+        return state != null ? state : newState();
+    }
+
+    private void release(State state) {
+        if (Thread.currentThread().isVirtual()) {
+            pool.offer(state);
+        }
+    }
+
+    private State newState() {
+        try {
+            return new State(
+                    (Mac) paymentPrototype.clone(),
+                    webhookPrototype == null ? null : (Mac) webhookPrototype.clone());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " provider does not support clone", e);
+        }
+    }
+
+    private static Mac keyedMac(String secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    private static final class State {
+        final Mac paymentMac;
+        final Mac webhookMac;
+        final byte[] scratch = new byte[128];
+        final byte[] digest = new byte[DIGEST_LENGTH];
+
+        State(Mac paymentMac, Mac webhookMac) {
+            this.paymentMac = paymentMac;
+            this.webhookMac = webhookMac;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.SubscriptionExpiry;
+import com.example.demo.repository.SubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flips {@code active} to false when a subscription reaches its end date.
+ * <p>
+ * Subscriptions ending within {@code subscription.expiry.horizon} are kept in a
+ * {@link TimingWheel}; when a bucket fires, its subscriptions are expired with one bulk
+ * UPDATE. A catch-up sweep, run on startup and every {@code subscription.expiry.sweep-interval},
+ * expires whatever is already overdue (e.g. after downtime) and loads the next horizon into the
+ * wheel. Every node runs its own wheel; the UPDATE is conditional, so a second node firing the
+ * same bucket changes nothing.
+ */
+@Slf4j
+@Service
+public class SubscriptionExpiryScheduler implements SmartLifecycle {
+
+    private static final int MAX_IDS_PER_UPDATE = 1000;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final EntitlementCache entitlementCache;
+    private final TimingWheel<SubscriptionExpiry> wheel;
+    // Subscriptions in the wheel and the end date they were scheduled for
+    private final Map<Long, LocalDateTime> scheduled = new ConcurrentHashMap<>();
+
+    @Value("${subscription.expiry.horizon:1h}")
+    private Duration horizon;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public SubscriptionExpiryScheduler(
+            SubscriptionRepository subscriptionRepository,
+            EntitlementCache entitlementCache,
+            @Value("${subscription.expiry.tick:1s}") Duration tick,
+            @Value("${subscription.expiry.wheel-size:60}") int wheelSize
+    ) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.entitlementCache = entitlementCache;
+        this.wheel = new TimingWheel<>(tick, wheelSize, System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${subscription.expiry.sweep-interval:10m}")
+    public void catchUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SubscriptionExpiry> overdue = new ArrayList<>();
+        int added = 0;
+        for (SubscriptionExpiry subscription : subscriptionRepository.findActiveEndingBefore(now.plus(horizon))) {
+            if (!subscription.endDate().isAfter(now)) {
+                overdue.add(subscription);
+            } else if (!subscription.endDate().equals(scheduled.put(subscription.id(), subscription.endDate()))) {
+                if (wheel.add(subscription, toEpochMilli(subscription.endDate()))) {
+                    added++;
+                } else {
+                    overdue.add(subscription);
+                }
+            }
+        }
+        for (int from = 0; from < overdue.size(); from += MAX_IDS_PER_UPDATE) {
+            expire(overdue.subList(from, Math.min(from + MAX_IDS_PER_UPDATE, overdue.size())));
+        }
+        if (added > 0 || !overdue.isEmpty()) {
+            log.debug("Subscription expiry sweep: {} scheduled, {} overdue", added, overdue.size());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("subscription-expiry").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<SubscriptionExpiry> due = wheel.poll(1, TimeUnit.SECONDS);
+                if (due.isEmpty()) {
+                    continue;
+                }
+                // A bucket may fire up to one tick before the latest end date it holds
+                long latest = due.stream().mapToLong(s -> toEpochMilli(s.endDate())).max().orElse(0);
+                long early = latest - System.currentTimeMillis();
+                if (early > 0) {
+                    Thread.sleep(early);
+                }
+                expire(due);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // The rows stay active and the next catch-up sweep retries them
+                log.warn("Subscription expiry failed, leaving it to the next sweep", e);
+            }
+        }
+    }
+
+    private void expire(List<SubscriptionExpiry> subscriptions) {
+        List<Long> ids = subscriptions.stream().map(SubscriptionExpiry::id).toList();
+        int expired = subscriptionRepository.expire(ids, LocalDateTime.now());
+        ids.forEach(scheduled::remove);
+        subscriptions.forEach(subscription -> entitlementCache.onSubscriptionChanged(subscription.userId(), null));
+        log.debug("Expired {} of {} due subscriptions", expired, ids.size());
+    }
+
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
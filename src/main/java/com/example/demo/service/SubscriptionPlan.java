@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Plans on sale, identified by the amount paid (in rupees).
+ */
+public enum SubscriptionPlan {
+
+    ONE_MONTH("1 Month", 1999.0, 1),
+    THREE_MONTHS("3 Months", 4999.0, 3),
+    SIX_MONTHS("6 Months", 9999.0, 6),
+    TWELVE_MONTHS("12 Months", 17999.0, 12);
+
+    private final String planName;
+    private final double amount;
+    private final int durationMonths;
+
+    SubscriptionPlan(String planName, double amount, int durationMonths) {
+        this.planName = planName;
+        this.amount = amount;
+        this.durationMonths = durationMonths;
+    }
+
+    public static Optional<SubscriptionPlan> forAmount(double amount) {
+        return Arrays.stream(values()).filter(plan -> plan.amount == amount).findFirst();
+    }
+
+    public String planName() {
+        return planName;
+    }
+
+    public double amount() {
+        return amount;
+    }
+
+    public int durationMonths() {
+        return durationMonths;
+    }
+}
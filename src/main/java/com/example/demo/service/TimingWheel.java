@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical timing wheel: O(1) insertion of timers with millisecond deadlines, where only
+ * non-empty buckets are ever waited on.
+ * <p>
+ * Each level has {@code wheelSize} buckets of {@code tick} width; deadlines beyond a level's
+ * span go to a coarser overflow level created on demand. Buckets that receive their first
+ * entry are put on a {@link DelayQueue}, so {@link #poll} sleeps until the next bucket is due
+ * instead of ticking through empty ones. When a coarse bucket fires its entries cascade into
+ * finer levels; entries reach the caller within one tick of their deadline.
+ */
+public class TimingWheel<T> {
+
+    private final DelayQueue<Bucket<T>> queue = new DelayQueue<>();
+    // Guards the wheel levels; poll() waits on the queue without holding it
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Level<T> root;
+    private int size;
+
+    public TimingWheel(Duration tick, int wheelSize, long startMs) {
+        this.root = new Level<>(tick.toMillis(), wheelSize, startMs, queue);
+    }
+
+    /**
+     * Schedules {@code item} for {@code expirationMs} (epoch millis). Returns false, without
+     * scheduling, when the deadline falls within the current tick, i.e. the item is already due.
+     */
+    public boolean add(T item, long expirationMs) {
+        lock.lock();
+        try {
+            if (root.add(new Entry<>(item, expirationMs))) {
+                size++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code timeout} for the next bucket to become due and returns the entries that
+     * expired, together with those of any other bucket due by then. Empty on timeout.
+     */
+    public List<T> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Bucket<T> bucket = queue.poll(timeout, unit);
+        if (bucket == null) {
+            return List.of();
+        }
+        List<T> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (bucket != null) {
+                root.advanceClock(bucket.expiration);
+                for (Entry<T> entry : bucket.drain()) {
+                    // Entries of a coarse bucket move down a level unless they are due now
+                    if (!root.add(entry)) {
+                        expired.add(entry.item());
+                        size--;
+                    }
+                }
+                bucket = queue.poll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry<T>(T item, long expirationMs) {
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final List<Bucket<T>> buckets;
+        private final DelayQueue<Bucket<T>> queue;
+        private long currentTime;
+        private Level<T> overflow;
+
+        Level(long tickMs, int wheelSize, long startMs, DelayQueue<Bucket<T>> queue) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.queue = queue;
+            this.currentTime = startMs - startMs % tickMs;
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new Bucket<>());
+            }
+        }
+
+        boolean add(Entry<T> entry) {
+            long expiration = entry.expirationMs();
+            if (expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket<T> bucket = buckets.get((int) (virtualId % wheelSize));
+                bucket.entries.add(entry);
+                // A bucket is queued once per round; later entries of the same round just join it
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(interval, wheelSize, currentTime, queue);
+            }
+            return overflow.add(entry);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - timeMs % tickMs;
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket<T> implements Delayed {
+
+        private final List<Entry<T>> entries = new ArrayList<>();
+        private volatile long expiration = -1;
+
+        boolean setExpiration(long expirationMs) {
+            if (expiration == expirationMs) {
+                return false;
+            }
+            expiration = expirationMs;
+            return true;
+        }
+
+        List<Entry<T>> drain() {
+            List<Entry<T>> drained = new ArrayList<>(entries);
+            entries.clear();
+            expiration = -1;
+            return drained;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(expiration - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiration, ((Bucket<?>) other).expiration);
+        }
+    }
+}
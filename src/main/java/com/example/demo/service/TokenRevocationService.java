@@ -0,0 +1,181 @@
+package com.example.demo.service;
+
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Revoked JWTs, checked on every authenticated request without a database round trip.
+ * <p>
+ * Two kinds of entries are persisted: single token ids ({@code revoked_tokens}, written on
+ * logout) and per-user cutoffs ({@code token_cutoffs}, written on password reset), which
+ * revoke every token of the user issued before them. Each node mirrors both in memory as a
+ * {@link BloomFilter} in front of exact maps, so a token that is not revoked, the usual case,
+ * costs a few bit probes; only filter hits look at the maps.
+ * <p>
+ * Other nodes learn about new entries through {@link CacheInvalidationBus}, and every
+ * {@code security.revocation.refresh-interval} the whole mirror is reloaded from the tables
+ * (which also covers lost notifications) after rows whose tokens have all expired are deleted.
+ * The filter is rebuilt on each reload, so keys that aged out stop costing false positives.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    private static final String TOKEN = "jti:";
+    private static final String USER = "user:";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final Duration tokenLifetime;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    // Serializes writers to the mirror; lookups never take it
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Mirror mirror;
+
+    public TokenRevocationService(
+            JdbcTemplate jdbcTemplate,
+            CacheInvalidationBus invalidationBus,
+            JwtService jwtService,
+            @Value("${security.revocation.bloom.expected-entries:100000}") int expectedEntries,
+            @Value("${security.revocation.bloom.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.tokenLifetime = jwtService.tokenLifetime();
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.mirror = new Mirror(new BloomFilter(expectedEntries, falsePositiveRate),
+                ConcurrentHashMap.newKeySet(), new ConcurrentHashMap<>());
+        invalidationBus.subscribe(CacheInvalidationBus.REVOCATIONS, this::load, this::refresh);
+    }
+
+    public boolean isRevoked(Claims claims) {
+        Mirror current = mirror;
+        String id = claims.getId();
+        if (id != null && current.filter.mightContain(TOKEN + id) && current.tokens.contains(id)) {
+            return true;
+        }
+        String subject = claims.getSubject();
+        if (subject == null || !current.filter.mightContain(USER + subject)) {
+            return false;
+        }
+        Long notBefore = current.cutoffs.get(subject);
+        Date issuedAt = claims.getIssuedAt();
+        return notBefore != null && (issuedAt == null || issuedAt.getTime() / 1000 < notBefore);
+    }
+
+    /**
+     * Revokes a single token until it expires.
+     */
+    public void revokeToken(String id, Date expiresAt) {
+        jdbcTemplate.update("insert into revoked_tokens (jti, expires_at) values (?, ?) on conflict do nothing",
+                id, Timestamp.from(expiresAt.toInstant()));
+        addToken(id);
+        invalidationBus.publish(CacheInvalidationBus.REVOCATIONS, TOKEN + id);
+    }
+
+    /**
+     * Revokes every token of {@code subject} issued before {@code cutoff}. JWT issue times have
+     * second precision, so the cutoff is truncated to the second: a token issued right after it
+     * must stay valid, one issued within the same second before it may too.
+     */
+    public void revokeAllBefore(String subject, Instant cutoff) {
+        long notBefore = cutoff.getEpochSecond();
+        jdbcTemplate.update("""
+                        insert into token_cutoffs (subject, not_before, expires_at) values (?, ?, ?)
+                        on conflict (subject) do update
+                        set not_before = greatest(token_cutoffs.not_before, excluded.not_before),
+                            expires_at = greatest(token_cutoffs.expires_at, excluded.expires_at)""",
+                subject, Timestamp.from(Instant.ofEpochSecond(notBefore)), Timestamp.from(cutoff.plus(tokenLifetime)));
+        addCutoff(subject, notBefore);
+        invalidationBus.publish(CacheInvalidationBus.REVOCATIONS, USER + subject);
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.refresh-interval:5m}")
+    public void refresh() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("delete from revoked_tokens where expires_at < ?", now);
+        jdbcTemplate.update("delete from token_cutoffs where expires_at < ?", now);
+        lock.lock();
+        try {
+            List<String> tokenIds = jdbcTemplate.queryForList("select jti from revoked_tokens", String.class);
+            Map<String, Long> cutoffs = new HashMap<>();
+            jdbcTemplate.query("select subject, not_before from token_cutoffs",
+                    rs -> {
+                        cutoffs.put(rs.getString(1), toEpochSecond(rs.getTimestamp(2)));
+                    });
+            int entries = tokenIds.size() + cutoffs.size();
+            Mirror fresh = new Mirror(
+                    new BloomFilter(Math.max(expectedEntries, 2 * entries), falsePositiveRate),
+                    ConcurrentHashMap.newKeySet(), new ConcurrentHashMap<>(cutoffs));
+            tokenIds.forEach(id -> {
+                fresh.tokens.add(id);
+                fresh.filter.add(TOKEN + id);
+            });
+            cutoffs.keySet().forEach(subject -> fresh.filter.add(USER + subject));
+            mirror = fresh;
+            log.debug("Token revocation list reloaded: {} tokens, {} user cutoffs", tokenIds.size(), cutoffs.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Another node added an entry
+    private void load(String key) {
+        if (key.startsWith(TOKEN)) {
+            addToken(key.substring(TOKEN.length()));
+        } else if (key.startsWith(USER)) {
+            String subject = key.substring(USER.length());
+            jdbcTemplate.query("select not_before from token_cutoffs where subject = ?",
+                    rs -> {
+                        addCutoff(subject, toEpochSecond(rs.getTimestamp(1)));
+                    }, subject);
+        }
+    }
+
+    // Exact map before filter: a lookup that sees the filter bit also sees the entry
+    private void addToken(String id) {
+        lock.lock();
+        try {
+            mirror.tokens.add(id);
+            mirror.filter.add(TOKEN + id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addCutoff(String subject, long notBefore) {
+        lock.lock();
+        try {
+            mirror.cutoffs.merge(subject, notBefore, Math::max);
+            mirror.filter.add(USER + subject);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long toEpochSecond(Timestamp timestamp) {
+        return timestamp.toLocalDateTime().atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private record Mirror(BloomFilter filter, Set<String> tokens, Map<String, Long> cutoffs) {
+    }
+}
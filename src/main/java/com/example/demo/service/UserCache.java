@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded near-cache in front of {@link UserRepository}, keyed by email and by id.
+ * Cached users are detached entities shared between requests: never mutate them,
+ * load a fresh copy from the repository and {@link #put(User)} it after saving instead.
+ */
+@Service
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> byEmail;
+    private final Cache<Long, User> byId;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    public UserCache(
+            UserRepository userRepository,
+            CacheInvalidationBus invalidationBus,
+            @Value("${cache.users.max-size:10000}") long maxSize,
+            @Value("${cache.users.ttl:10m}") Duration ttl
+    ) {
+        this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        invalidationBus.subscribe(CacheInvalidationBus.USERS, this::evictByEmail, this::evictAll);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        User user = byEmail.get(email, key -> userRepository.findByEmail(key).orElse(null));
+        if (user != null) {
+            byId.put(user.getId(), user);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    public Optional<User> findById(Long id) {
+        User user = byId.get(id, key -> userRepository.findById(key).orElse(null));
+        if (user != null) {
+            byEmail.put(user.getEmail(), user);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    // Write-through after the user row was saved; other nodes drop their copy
+    public void put(User user) {
+        byId.put(user.getId(), user);
+        byEmail.put(user.getEmail(), user);
+        invalidationBus.publish(CacheInvalidationBus.USERS, user.getEmail());
+    }
+
+    public void evict(User user) {
+        byId.invalidate(user.getId());
+        byEmail.invalidate(user.getEmail());
+    }
+
+    public void evictByEmail(String email) {
+        User user = byEmail.getIfPresent(email);
+        byEmail.invalidate(email);
+        if (user != null) {
+            byId.invalidate(user.getId());
+        }
+    }
+
+    public void evictAll() {
+        byEmail.invalidateAll();
+        byId.invalidateAll();
+    }
+
+    Cache<String, User> emailCache() {
+        return byEmail;
+    }
+
+    Cache<Long, User> idCache() {
+        return byId;
+    }
+
+    public CacheStats emailStats() {
+        return byEmail.stats();
+    }
+
+    public CacheStats idStats() {
+        return byId.stats();
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable, batched intake of Razorpay webhook deliveries.
+ * <p>
+ * Request threads only append to a bounded queue and wait for their event to be written to
+ * the {@code webhook_events} inbox; a full queue is refused so Razorpay redelivers later. A
+ * single consumer drains the queue in batches: one insert for the whole batch (duplicates by
+ * event id are dropped there), acknowledgement of the waiting requests, then one
+ * {@link PaymentWebhookProcessor#apply} transaction for the newly stored events. Events that
+ * were stored but not applied, e.g. because the process died in between, are picked up by
+ * {@link #recover()}.
+ * <p>
+ * If a batch fails to apply, its events are applied one per transaction so one bad event does
+ * not hold back the rest. An event that fails on its own has the attempt and its error recorded
+ * on its row, and after {@code razorpay.webhook.max-attempts} of them recovery stops retrying it.
+ */
+@Slf4j
+@Service
+public class WebhookInbox implements SmartLifecycle {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentWebhookProcessor processor;
+    private final BlockingQueue<Delivery> queue;
+
+    @Value("${razorpay.webhook.batch-size:200}")
+    private int batchSize;
+
+    @Value("${razorpay.webhook.recovery-after:2m}")
+    private Duration recoveryAfter;
+
+    @Value("${razorpay.webhook.max-attempts:5}")
+    private int maxAttempts;
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    public WebhookInbox(
+            JdbcTemplate jdbcTemplate,
+            PaymentWebhookProcessor processor,
+            @Value("${razorpay.webhook.queue-capacity:10000}") int queueCapacity
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.processor = processor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Queues the event; the returned future completes once it is stored in the inbox.
+     * Returns null when the queue is full.
+     */
+    public CompletableFuture<Void> submit(String eventId, String eventType, String payload) {
+        Delivery delivery = new Delivery(new PaymentWebhookProcessor.Event(eventId, eventType, payload),
+                LocalDateTime.now(), new CompletableFuture<>());
+        if (!running || !queue.offer(delivery)) {
+            return null;
+        }
+        return delivery.stored();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        consumer = Thread.ofPlatform().daemon().name("webhook-inbox").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Delivery first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                consume(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        // Requests still waiting get refused and Razorpay redelivers
+        Delivery left;
+        while ((left = queue.poll()) != null) {
+            left.stored().completeExceptionally(new IllegalStateException("Webhook inbox stopped"));
+        }
+    }
+
+    private void consume(List<Delivery> batch) {
+        Set<String> inserted;
+        try {
+            inserted = store(batch);
+        } catch (RuntimeException e) {
+            log.warn("Could not store {} webhook events", batch.size(), e);
+            batch.forEach(delivery -> delivery.stored().completeExceptionally(e));
+            return;
+        }
+        batch.forEach(delivery -> delivery.stored().complete(null));
+
+        List<PaymentWebhookProcessor.Event> fresh = new ArrayList<>(inserted.size());
+        for (Delivery delivery : batch) {
+            if (inserted.remove(delivery.event().eventId())) {
+                fresh.add(delivery.event());
+            }
+        }
+        // Stored, so recover() retries whatever fails here
+        apply(fresh);
+    }
+
+    // Returns whether every event was applied
+    private boolean apply(List<PaymentWebhookProcessor.Event> events) {
+        try {
+            processor.apply(events);
+            return true;
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                recordFailure(events.get(0), e);
+                return false;
+            }
+            log.warn("Could not apply {} webhook events together, applying them one at a time", events.size(), e);
+        }
+        boolean applied = true;
+        for (PaymentWebhookProcessor.Event event : events) {
+            try {
+                processor.apply(List.of(event));
+            } catch (RuntimeException e) {
+                applied = false;
+                if (!recordFailure(event, e)) {
+                    // The database itself is failing; leave the rest to recovery
+                    break;
+                }
+            }
+        }
+        return applied;
+    }
+
+    private boolean recordFailure(PaymentWebhookProcessor.Event event, RuntimeException failure) {
+        Integer attempts;
+        try {
+            attempts = jdbcTemplate.queryForObject(
+                    "update webhook_events set attempts = attempts + 1, last_error = ? where event_id = ? returning attempts",
+                    Integer.class, failure.toString(), event.eventId());
+        } catch (RuntimeException e) {
+            log.warn("Could not apply webhook event {} nor record the failure", event.eventId(), e);
+            return false;
+        }
+        if (attempts != null && attempts >= maxAttempts) {
+            log.error("Parking webhook event {} after {} failed attempts", event.eventId(), attempts, failure);
+        } else {
+            log.warn("Could not apply webhook event {} (attempt {})", event.eventId(), attempts, failure);
+        }
+        return true;
+    }
+
+    // One statement for the whole batch; returns the ids that were not in the inbox yet
+    private Set<String> store(List<Delivery> batch) {
+        Map<String, Delivery> byId = new LinkedHashMap<>();
+        batch.forEach(delivery -> byId.putIfAbsent(delivery.event().eventId(), delivery));
+
+        List<Object> ids = new ArrayList<>(byId.size());
+        List<Object> types = new ArrayList<>(byId.size());
+        List<Object> payloads = new ArrayList<>(byId.size());
+        List<Object> receivedAt = new ArrayList<>(byId.size());
+        for (Delivery delivery : byId.values()) {
+            ids.add(delivery.event().eventId());
+            types.add(delivery.event().eventType());
+            payloads.add(delivery.event().payload());
+            receivedAt.add(Timestamp.valueOf(delivery.receivedAt()));
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("""
+                    insert into webhook_events (event_id, event_type, payload, received_at)
+                    select * from unnest(?::text[], ?::text[], ?::text[], ?::timestamp[])
+                    on conflict (event_id) do nothing
+                    returning event_id""")) {
+                statement.setArray(1, connection.createArrayOf("text", ids.toArray()));
+                statement.setArray(2, connection.createArrayOf("text", types.toArray()));
+                statement.setArray(3, connection.createArrayOf("text", payloads.toArray()));
+                statement.setArray(4, connection.createArrayOf("timestamp", receivedAt.toArray()));
+                Set<String> inserted = new HashSet<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        inserted.add(rs.getString(1));
+                    }
+                }
+                return inserted;
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${razorpay.webhook.recovery-interval:1m}")
+    public void recover() {
+        List<PaymentWebhookProcessor.Event> stale;
+        boolean applied;
+        do {
+            stale = jdbcTemplate.query("""
+                            select event_id, event_type, payload from webhook_events
+                            where processed_at is null and attempts < ? and received_at < ?
+                            order by received_at
+                            limit ?""",
+                    (rs, row) -> new PaymentWebhookProcessor.Event(rs.getString(1), rs.getString(2), rs.getString(3)),
+                    maxAttempts, Timestamp.valueOf(LocalDateTime.now().minus(recoveryAfter)), batchSize);
+            if (stale.isEmpty()) {
+                return;
+            }
+            log.info("Applying {} unprocessed webhook events", stale.size());
+            applied = apply(stale);
+            // A failed event would be fetched again straight away; the next sweep retries it
+        } while (applied && stale.size() == batchSize);
+    }
+
+    private record Delivery(PaymentWebhookProcessor.Event event, LocalDateTime receivedAt,
+                            CompletableFuture<Void> stored) {
+    }
+}
@@ -0,0 +1,30 @@
+-- Tables and columns added after the ddl-auto baseline. Databases baselined at V1 do not have
+-- them yet; ones that ran ddl-auto after they were introduced already do, hence "if not exists".
+
+alter table users add column if not exists security_stamp varchar(255);
+
+create table if not exists review_rating_counts (
+    rating       integer primary key,
+    review_count bigint not null
+);
+
+create table if not exists idempotency_keys (
+    id                    varchar(255) primary key,
+    request_hash          varchar(255) not null,
+    status                varchar(255) not null,
+    response_status       integer,
+    response_content_type varchar(255),
+    response_body         text,
+    created_at            timestamp(6),
+    expires_at            timestamp(6) not null
+);
+
+create table if not exists webhook_events (
+    event_id     varchar(255) primary key,
+    event_type   varchar(255) not null,
+    payload      text         not null,
+    received_at  timestamp(6) not null,
+    processed_at timestamp(6)
+);
+
+create index if not exists idx_idempotency_keys_expires_at on idempotency_keys (expires_at);
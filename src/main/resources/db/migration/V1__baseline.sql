@@ -0,0 +1,44 @@
+-- Schema as created by hibernate.ddl-auto before the migrations existed. Existing databases are
+-- baselined at this version (spring.flyway.baseline-on-migrate) and only run the migrations after it,
+-- so everything added since lives in V1_1 and later.
+
+create table users (
+    id           bigint generated by default as identity primary key,
+    full_name    varchar(255),
+    email        varchar(255) not null unique,
+    password     varchar(255) not null,
+    phone_number varchar(255),
+    created_at   timestamp(6)
+);
+
+create table payments (
+    id                  bigint generated by default as identity primary key,
+    razorpay_order_id   varchar(255),
+    razorpay_payment_id varchar(255),
+    razorpay_signature  varchar(255),
+    amount              float(53),
+    currency            varchar(255),
+    status              varchar(255),
+    user_id             bigint references users,
+    created_at          timestamp(6)
+);
+
+create table subscriptions (
+    id         bigint generated by default as identity primary key,
+    user_id    bigint unique references users,
+    plan_name  varchar(255),
+    amount     float(53),
+    start_date timestamp(6),
+    end_date   timestamp(6),
+    active     boolean,
+    payment_id bigint references payments,
+    created_at timestamp(6)
+);
+
+create table reviews (
+    id         bigint generated by default as identity primary key,
+    user_name  varchar(255) not null,
+    rating     integer      not null,
+    massage    text,
+    created_at timestamp(6)
+);
@@ -0,0 +1,46 @@
+-- Indexes for the hot lookups; statements are idempotent so baselined databases that
+-- already have some of them from ddl-auto still migrate.
+
+-- Databases created by ddl-auto still carry the one-subscription-per-user unique constraint
+-- from the old @OneToOne mapping, which breaks renewals
+do $$
+declare
+    constraint_name text;
+begin
+    for constraint_name in
+        select con.conname
+        from pg_constraint con
+                 join pg_class rel on rel.oid = con.conrelid
+                 join pg_attribute att on att.attrelid = rel.oid and att.attnum = con.conkey[1]
+        where rel.relname = 'subscriptions'
+          and con.contype = 'u'
+          and array_length(con.conkey, 1) = 1
+          and att.attname = 'user_id'
+    loop
+        execute format('alter table subscriptions drop constraint %I', constraint_name);
+    end loop;
+end
+$$;
+
+-- PaymentService verification and the webhook processor
+create index if not exists idx_payments_razorpay_order_id on payments (razorpay_order_id);
+-- A user's payments by status
+create index if not exists idx_payments_user_id_status on payments (user_id, status);
+-- PaymentIntentSweeper: only the few PENDING rows are indexed
+create index if not exists idx_payments_pending_created_at on payments (created_at) where status = 'PENDING';
+
+-- At most one active subscription per user; also serves EntitlementCache misses and deactivateActive
+create unique index if not exists ux_subscriptions_user_id_active on subscriptions (user_id) where active;
+-- SubscriptionExpiryScheduler sweep; replaces the (active, end_date) index
+create index if not exists idx_subscriptions_active_end_date_partial on subscriptions (end_date) where active;
+drop index if exists idx_subscriptions_active_end_date;
+-- Foreign keys used for joins from users
+create index if not exists idx_subscriptions_user_id on subscriptions (user_id);
+create index if not exists idx_subscriptions_payment_id on subscriptions (payment_id);
+
+-- Review feed (keyset over created_at, id); declared before migrations existed
+create index if not exists idx_reviews_created_at_id on reviews (created_at desc, id desc);
+
+-- Webhook recovery only looks at unprocessed rows
+create index if not exists idx_webhook_events_unprocessed_received_at on webhook_events (received_at) where processed_at is null;
+drop index if exists idx_webhook_events_unprocessed;
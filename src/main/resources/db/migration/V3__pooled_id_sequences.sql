@@ -0,0 +1,19 @@
+-- Pooled sequences (increment 50, matching allocationSize) replace the identity columns so
+-- Hibernate can assign ids without a round trip per insert and batch the inserts.
+-- Each sequence starts past the current ids; Hibernate uses the 50 ids up to each value it draws.
+
+create sequence if not exists users_seq increment by 50;
+create sequence if not exists payments_seq increment by 50;
+create sequence if not exists subscriptions_seq increment by 50;
+create sequence if not exists reviews_seq increment by 50;
+
+select setval('users_seq', (select coalesce(max(id), 0) + 50 from users));
+select setval('payments_seq', (select coalesce(max(id), 0) + 50 from payments));
+select setval('subscriptions_seq', (select coalesce(max(id), 0) + 50 from subscriptions));
+select setval('reviews_seq', (select coalesce(max(id), 0) + 50 from reviews));
+
+-- Inserts that do not go through Hibernate must draw from the sequences as well
+alter table users alter column id drop identity if exists;
+alter table payments alter column id drop identity if exists;
+alter table subscriptions alter column id drop identity if exists;
+alter table reviews alter column id drop identity if exists;
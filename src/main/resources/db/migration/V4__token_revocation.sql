@@ -0,0 +1,17 @@
+-- Token revocation: single tokens by id (logout) and every token of a user issued before a
+-- cutoff (password reset, logout everywhere). Each row expires with the last token it blocks
+-- and is deleted by the periodic refresh.
+
+create table if not exists revoked_tokens (
+    jti        varchar(64) primary key,
+    expires_at timestamp(6) not null
+);
+
+create table if not exists token_cutoffs (
+    subject    varchar(255) primary key,
+    not_before timestamp(6) not null,
+    expires_at timestamp(6) not null
+);
+
+create index if not exists idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
+create index if not exists idx_token_cutoffs_expires_at on token_cutoffs (expires_at);
@@ -0,0 +1,4 @@
+-- The security stamp was rotated on password reset but never compared; tokens issued before a
+-- reset are revoked by the user's cutoff in token_cutoffs instead.
+
+alter table users drop column if exists security_stamp;
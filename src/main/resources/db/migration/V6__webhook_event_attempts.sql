@@ -0,0 +1,5 @@
+-- Failed attempts to apply an inbox event and the last error. Recovery skips an event once its
+-- attempts reach razorpay.webhook.max-attempts; setting them back to 0 queues it again.
+
+alter table webhook_events add column if not exists attempts integer not null default 0;
+alter table webhook_events add column if not exists last_error text;
@@ -0,0 +1,337 @@
+package com.example.demo;
+
+import com.razorpay.RazorpayClient;
+import com.razorpay.StubOrderClient;
+import com.razorpay.Utils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end capacity run: the full application on a local Postgres, with Razorpay replaced by
+ * {@link RazorpayStub}. New users go through register, login, create-order, verify and status
+ * at a fixed arrival rate while anonymous clients read the review feed; arrivals are open-loop,
+ * so a slow server shows up as latency and errors rather than as a lower offered load.
+ * Prints throughput and latency percentiles per endpoint, pool saturation and errors by status.
+ * <p>
+ * Use a throwaway database, every run adds users and payments:
+ * {@code TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/demo_load mvn test -Pload-test -Dtest=PaymentFlowLoadTest}.
+ * To compare Tomcat's platform workers with virtual threads, run it once with
+ * -Dspring.threads.virtual.enabled=false and once with =true; the report names the mode.
+ * Tune with -Dload.flow-rate, -Dload.feed-rate (per second), -Dload.duration-seconds,
+ * -Dload.stub.latency-ms, -Dload.stub.jitter-ms and -Dload.stub.error-rate.
+ */
+@Tag("load")
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = "jdbc:postgresql:.+")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=${TEST_POSTGRES_URL}",
+        "spring.datasource.username=${TEST_POSTGRES_USERNAME:postgres}",
+        "spring.datasource.password=${TEST_POSTGRES_PASSWORD:postgres}",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "razorpay.key.id=rzp_test",
+        "razorpay.key.secret=" + PaymentFlowLoadTest.KEY_SECRET,
+        // Every simulated client comes from 127.0.0.1
+        "security.rate-limit.enabled=false"
+})
+class PaymentFlowLoadTest {
+
+    static final String KEY_SECRET = "load_test_secret";
+
+    private static final double FLOW_RATE = Double.parseDouble(System.getProperty("load.flow-rate", "20"));
+    private static final double FEED_RATE = Double.parseDouble(System.getProperty("load.feed-rate", "100"));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-seconds", 60));
+    private static final Duration STUB_LATENCY = Duration.ofMillis(Long.getLong("load.stub.latency-ms", 150));
+    private static final Duration STUB_JITTER = Duration.ofMillis(Long.getLong("load.stub.jitter-ms", 100));
+    private static final double STUB_ERROR_RATE = Double.parseDouble(System.getProperty("load.stub.error-rate", "0.01"));
+    private static final String PASSWORD = "load-test-password";
+
+    private static final RazorpayStub stub = startStub();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String run = Long.toString(System.currentTimeMillis(), 36);
+    private final Recorder recorder = new Recorder();
+    private final AtomicInteger flowsStarted = new AtomicInteger();
+    private final AtomicInteger flowsCompleted = new AtomicInteger();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RazorpayClient razorpayClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void paymentFlowAndReviewFeedAtTargetRate() throws Exception {
+        razorpayClient.orders = new StubOrderClient(stub.baseUri());
+        PoolSampler sampler = new PoolSampler(meterRegistry);
+        Thread sampling = Thread.ofVirtual().start(sampler);
+
+        long start = System.nanoTime();
+        long end = start + DURATION.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Thread feed = Thread.ofVirtual().start(() -> arrive(FEED_RATE, start, end, executor, this::readFeed));
+            arrive(FLOW_RATE, start, end, executor, this::paymentFlow);
+            feed.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        sampling.interrupt();
+        sampling.join();
+
+        System.out.printf("%n%s threads. Offered %.0f flows/s and %.0f feed reads/s for %ds, drained after %.1fs; stub latency %d+%d ms, error rate %.2f%n",
+                virtualThreads ? "Virtual" : "Platform", FLOW_RATE, FEED_RATE, DURATION.toSeconds(), elapsedSeconds, STUB_LATENCY.toMillis(), STUB_JITTER.toMillis(), STUB_ERROR_RATE);
+        System.out.printf("Flows %d started, %d completed (%.1f/s); stub calls %d, injected errors %d%n",
+                flowsStarted.get(), flowsCompleted.get(), flowsCompleted.get() / elapsedSeconds, stub.calls(), stub.injectedErrors());
+        System.out.print(recorder.report(elapsedSeconds));
+        System.out.println(sampler.report(meterRegistry));
+
+        assertTrue(flowsCompleted.get() > 0, "no payment flow completed");
+    }
+
+    // Fires one task per interval regardless of how many are still running
+    private static void arrive(double ratePerSecond, long start, long end, ExecutorService executor, Runnable task) {
+        if (ratePerSecond <= 0) {
+            return;
+        }
+        long interval = (long) (1e9 / ratePerSecond);
+        for (long next = start; next < end; next += interval) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            executor.execute(task);
+        }
+    }
+
+    private void paymentFlow() {
+        int n = flowsStarted.incrementAndGet();
+        String email = "load-" + run + "-" + n + "@example.com";
+
+        JSONObject user = new JSONObject()
+                .put("fullName", "Load User " + n)
+                .put("email", email)
+                .put("password", PASSWORD)
+                .put("phoneNumber", "9" + String.format("%09d", n));
+        if (call("register", post("/api/v1/auth/register", user, null)) == null) {
+            return;
+        }
+
+        HttpResponse<String> login = call("login", post("/api/v1/auth/login",
+                new JSONObject().put("email", email).put("password", PASSWORD), null));
+        if (login == null) {
+            return;
+        }
+        String token = login.body();
+
+        HttpResponse<String> order = call("create-order", post("/api/v1/payment/create-order",
+                new JSONObject().put("amount", 1999), token));
+        if (order == null) {
+            return;
+        }
+        String orderId = new JSONObject(order.body()).getString("id");
+        String paymentId = "pay_load" + run + n;
+
+        JSONObject payment = new JSONObject()
+                .put("razorpay_order_id", orderId)
+                .put("razorpay_payment_id", paymentId)
+                .put("razorpay_signature", sign(orderId + "|" + paymentId));
+        if (call("verify", post("/api/v1/payment/verify", payment, token)) == null) {
+            return;
+        }
+
+        HttpResponse<String> status = call("status", HttpRequest.newBuilder(uri("/api/v1/subscription/status"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build());
+        if (status != null) {
+            flowsCompleted.incrementAndGet();
+        }
+    }
+
+    private void readFeed() {
+        call("reviews", HttpRequest.newBuilder(uri("/api/v1/reviews")).timeout(Duration.ofSeconds(30)).GET().build());
+    }
+
+    // Records the latency; non-2xx answers and transport failures count as errors and return null
+    private HttpResponse<String> call(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.latency(endpoint, System.nanoTime() - start);
+            if (response.statusCode() / 100 != 2) {
+                recorder.error(endpoint, Integer.toString(response.statusCode()));
+                return null;
+            }
+            return response;
+        } catch (IOException e) {
+            recorder.error(endpoint, e.getClass().getSimpleName());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest post(String path, JSONObject body, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    // What Checkout would return to the browser after a successful payment
+    private static String sign(String payload) {
+        try {
+            return Utils.getHash(payload, KEY_SECRET);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RazorpayStub startStub() {
+        try {
+            return new RazorpayStub(STUB_LATENCY, STUB_JITTER, STUB_ERROR_RATE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Recorder {
+
+        private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void latency(String endpoint, long nanos) {
+            latencies.computeIfAbsent(endpoint, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+        }
+
+        void error(String endpoint, String cause) {
+            errors.computeIfAbsent(endpoint + " " + cause, key -> new LongAdder()).increment();
+        }
+
+        String report(double elapsedSeconds) {
+            StringBuilder report = new StringBuilder(String.format("%-13s %8s %8s %9s %9s %9s %9s%n",
+                    "endpoint", "count", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (String endpoint : new TreeMap<>(latencies).keySet()) {
+                long[] sorted = latencies.get(endpoint).stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(sorted);
+                report.append(String.format("%-13s %8d %8.1f %9.1f %9.1f %9.1f %9.1f%n",
+                        endpoint, sorted.length, sorted.length / elapsedSeconds,
+                        percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                        sorted[sorted.length - 1] / 1e6));
+            }
+            report.append(errors.isEmpty() ? "No errors\n" : "Errors:\n");
+            new TreeMap<>(errors).forEach((key, count) -> report.append(String.format("  %-24s %8d%n", key, count.sum())));
+            return report.toString();
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * quantile) - 1)] / 1e6;
+        }
+    }
+
+    // Peak values of the saturation gauges, sampled every 100ms while the load runs
+    private static final class PoolSampler implements Runnable {
+
+        private final MeterRegistry registry;
+        private final Map<String, Double> peaks = new ConcurrentHashMap<>();
+
+        PoolSampler(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                sample("hikaricp.connections.active");
+                sample("hikaricp.connections.pending");
+                sample("gateway.bulkhead.in.flight");
+                sample("password.hash.active");
+                sample("password.hash.queue.depth");
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void sample(String gauge) {
+            Gauge meter = registry.find(gauge).gauge();
+            if (meter != null && !Double.isNaN(meter.value())) {
+                peaks.merge(gauge, meter.value(), Math::max);
+            }
+        }
+
+        String report(MeterRegistry registry) {
+            Gauge max = registry.find("hikaricp.connections.max").gauge();
+            Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+            StringBuilder report = new StringBuilder("Saturation (peak):\n");
+            report.append(String.format("  db pool             active %.0f of %.0f, pending %.0f, acquire mean %.2f ms%n",
+                    peaks.getOrDefault("hikaricp.connections.active", 0.0),
+                    max == null ? Double.NaN : max.value(),
+                    peaks.getOrDefault("hikaricp.connections.pending", 0.0),
+                    acquire == null ? Double.NaN : acquire.mean(TimeUnit.MILLISECONDS)));
+            report.append(String.format("  gateway bulkhead    in flight %.0f%n",
+                    peaks.getOrDefault("gateway.bulkhead.in.flight", 0.0)));
+            report.append(String.format("  password hashing    active %.0f, queued %.0f",
+                    peaks.getOrDefault("password.hash.active", 0.0),
+                    peaks.getOrDefault("password.hash.queue.depth", 0.0)));
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo;
+
+import com.example.demo.entity.Payment;
+import com.example.demo.entity.Subscription;
+import com.example.demo.entity.User;
+import com.example.demo.repository.PaymentRepository;
+import com.example.demo.repository.SubscriptionRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.CacheInvalidationBus;
+import com.example.demo.service.EntitlementCache;
+import com.example.demo.service.PaymentService;
+import com.example.demo.service.RazorpayGateway;
+import com.example.demo.service.SignatureVerifier;
+import com.example.demo.support.SqlStatementCounter;
+import com.razorpay.Utils;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pins the number of SQL statements of the payment and subscription read paths,
+ * so a lazy association turned eager or an N+1 loop fails the build.
+ */
+@DataJpaTest(properties = {
+        // The Flyway migrations are PostgreSQL-only, the H2 schema comes from the entities
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.demo.support.SqlStatementCounter",
+        "razorpay.key.id=rzp_test",
+        "razorpay.key.secret=test_secret"
+})
+@Import({PaymentService.class, EntitlementCache.class, CacheInvalidationBus.class, SignatureVerifier.class})
+class QueryCountTest {
+
+    @MockitoBean
+    private RazorpayGateway razorpayGateway;
+
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private EntitlementCache entitlementCache;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder().fullName("Test").email("test@example.com").password("x").build());
+    }
+
+    @Test
+    void verifyPaymentIssuesFourStatements() throws Exception {
+        Payment previous = payment("order_old", 1999.0, "SUCCESS");
+        subscription(previous, LocalDateTime.now().plusDays(3));
+        payment("order_new", 4999.0, "CREATED");
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCounter.reset();
+
+        paymentService.verifyAndSavePayment(Map.of(
+                "razorpay_order_id", "order_new",
+                "razorpay_payment_id", "pay_new",
+                "razorpay_signature", Utils.getHash("order_new|pay_new", "test_secret")
+        ), user);
+        entityManager.flush();
+
+        // Payment summary, mark succeeded, deactivate previous subscription, insert new one
+        assertEquals(4, SqlStatementCounter.count(), String.join("\n", SqlStatementCounter.statements()));
+    }
+
+    @Test
+    void subscriptionStatusHitsTheDatabaseOnlyOnFirstRead() {
+        subscription(payment("order_1", 1999.0, "SUCCESS"), LocalDateTime.now().plusMonths(1));
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCounter.reset();
+
+        for (int i = 0; i < 10; i++) {
+            entitlementCache.find(user.getId());
+        }
+
+        assertEquals(1, SqlStatementCounter.count(), String.join("\n", SqlStatementCounter.statements()));
+    }
+
+    @Test
+    void loadingSubscriptionsDoesNotFetchUsersOrPayments() {
+        for (int i = 0; i < 5; i++) {
+            User other = userRepository.save(User.builder().fullName("U" + i).email("u" + i + "@example.com").password("x").build());
+            Payment payment = paymentRepository.save(Payment.builder()
+                    .razorpayOrderId("order_u" + i).amount(1999.0).currency("INR").status("SUCCESS").user(other).build());
+            subscriptionRepository.save(Subscription.builder()
+                    .user(other).planName("1 Month").amount(1999.0)
+                    .startDate(LocalDateTime.now()).endDate(LocalDateTime.now().plusMonths(1)).payment(payment).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCounter.reset();
+
+        subscriptionRepository.findAll();
+
+        assertEquals(1, SqlStatementCounter.count(), String.join("\n", SqlStatementCounter.statements()));
+    }
+
+    @Test
+    void insertsAreBatched() {
+        SqlStatementCounter.reset();
+
+        for (int i = 0; i < 20; i++) {
+            paymentRepository.save(Payment.builder()
+                    .razorpayOrderId("order_b" + i).amount(1999.0).currency("INR").status("CREATED").user(user).build());
+        }
+        entityManager.flush();
+
+        // One pooled sequence call for all 20 ids and a single batched insert
+        assertEquals(2, SqlStatementCounter.count(), String.join("\n", SqlStatementCounter.statements()));
+    }
+
+    private Payment payment(String orderId, double amount, String status) {
+        return paymentRepository.save(Payment.builder()
+                .razorpayOrderId(orderId).amount(amount).currency("INR").status(status).user(user).build());
+    }
+
+    private void subscription(Payment payment, LocalDateTime endDate) {
+        subscriptionRepository.save(Subscription.builder()
+                .user(user).planName("1 Month").amount(payment.getAmount())
+                .startDate(LocalDateTime.now()).endDate(endDate).payment(payment).build());
+    }
+}
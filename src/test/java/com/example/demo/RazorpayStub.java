@@ -0,0 +1,137 @@
+package com.example.demo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Razorpay orders API ({@code POST /v1/orders} and
+ * {@code GET /v1/orders?receipt=}). Every call waits {@code latency} plus up to {@code jitter}
+ * and fails with a 500 {@code SERVER_ERROR} at {@code errorRate}; created orders are kept so
+ * the intent sweeper can find them by receipt.
+ */
+class RazorpayStub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+    private final Map<String, JSONObject> ordersByReceipt = new ConcurrentHashMap<>();
+    // Order ids are unique across runs, which share the load-test database
+    private final String run = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    RazorpayStub(Duration latency, Duration jitter, double errorRate) throws IOException {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/orders", this::orders);
+        server.start();
+    }
+
+    URI baseUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    private void orders(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            calls.incrementAndGet();
+            simulateLatency();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                JSONObject error = new JSONObject()
+                        .put("code", "SERVER_ERROR")
+                        .put("description", "Injected failure");
+                respond(exchange, 500, new JSONObject().put("error", error));
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 200, create(new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))));
+            } else {
+                respond(exchange, 200, findByReceipt(exchange.getRequestURI().getRawQuery()));
+            }
+        }
+    }
+
+    private JSONObject create(JSONObject request) {
+        JSONObject order = new JSONObject()
+                .put("id", "order_stub" + run + "_" + sequence.incrementAndGet())
+                .put("entity", "order")
+                .put("amount", request.getInt("amount"))
+                .put("amount_paid", 0)
+                .put("amount_due", request.getInt("amount"))
+                .put("currency", request.getString("currency"))
+                .put("receipt", request.optString("receipt", null))
+                .put("status", "created")
+                .put("attempts", 0)
+                .put("created_at", Instant.now().getEpochSecond());
+        if (order.has("receipt")) {
+            ordersByReceipt.put(order.getString("receipt"), order);
+        }
+        return order;
+    }
+
+    private JSONObject findByReceipt(String query) {
+        JSONArray items = new JSONArray();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("receipt=")) {
+                    JSONObject order = ordersByReceipt.get(URLDecoder.decode(param.substring(8), StandardCharsets.UTF_8));
+                    if (order != null) {
+                        items.put(order);
+                    }
+                }
+            }
+        }
+        return new JSONObject().put("entity", "collection").put("count", items.length()).put("items", items);
+    }
+
+    private void simulateLatency() {
+        long millis = latency.toMillis();
+        if (!jitter.isZero()) {
+            millis += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.JwtPrincipal;
+import com.example.demo.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification in {@link JwtService}, with the verified-claims cache
+ * ({@code cached*}) and without it ({@code uncached*}, a full signature check per call).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private final JwtService cached = new JwtService(new SimpleMeterRegistry(), 10_000, Duration.ofHours(24));
+    private final JwtService uncached = new JwtService(new SimpleMeterRegistry(), 0, Duration.ofHours(24));
+    private final JwtPrincipal user = new JwtPrincipal(42L, "user@example.com", "Benchmark User");
+    private final Map<String, Object> extraClaims = new HashMap<>();
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        extraClaims.put(JwtPrincipal.FULL_NAME_CLAIM, user.fullName());
+        extraClaims.put("phoneNumber", "+910000000000");
+        extraClaims.put(JwtPrincipal.USER_ID_CLAIM, user.id());
+        token = cached.generateToken(extraClaims, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cached.generateToken(extraClaims, user);
+    }
+
+    @Benchmark
+    public String cachedExtractClaim() {
+        return cached.extractClaim(token, Claims::getSubject);
+    }
+
+    @Benchmark
+    public String uncachedExtractClaim() {
+        return uncached.extractClaim(token, Claims::getSubject);
+    }
+
+    @Benchmark
+    public boolean cachedIsTokenValid() {
+        return cached.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public boolean uncachedIsTokenValid() {
+        return uncached.isTokenValid(token, user);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.ReviewView;
+import com.example.demo.entity.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialisation of a review feed page, as entities and as the {@link ReviewView}
+ * projection the feed endpoint encodes, for page sizes from a single review to the maximum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewSerializationBenchmark {
+
+    @Param({"1", "20", "100"})
+    private int size;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private List<Review> reviews;
+    private List<ReviewView> views;
+
+    @Setup
+    public void setUp() {
+        reviews = new ArrayList<>(size);
+        views = new ArrayList<>(size);
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < size; i++) {
+            Review review = Review.builder()
+                    .id((long) i)
+                    .userName("User " + i)
+                    .rating(1 + i % 5)
+                    .massage("Review text " + i + " ".repeat(i % 7) + "with a few more words about the course")
+                    .createdAt(createdAt.plusMinutes(i))
+                    .build();
+            reviews.add(review);
+            views.add(new ReviewView(review.getId(), review.getUserName(), review.getRating(),
+                    review.getMassage(), review.getCreatedAt()));
+        }
+    }
+
+    @Benchmark
+    public byte[] entities() {
+        return jsonMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public byte[] views() {
+        return jsonMapper.writeValueAsBytes(views);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.SignatureVerifier;
+import com.razorpay.RazorpayException;
+import com.razorpay.Utils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SignatureVerifier} against the Razorpay SDK path it replaces.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.include=SignatureVerifier};
+ * the gc profiler reports the allocation rate as gc.alloc.rate.norm (bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureVerifierBenchmark {
+
+    private static final String KEY_SECRET = "benchmark_key_secret";
+    private static final String WEBHOOK_SECRET = "benchmark_webhook_secret";
+
+    private final SignatureVerifier verifier = new SignatureVerifier(KEY_SECRET, WEBHOOK_SECRET);
+
+    private String orderId;
+    private String paymentId;
+    private String paymentSignature;
+    private String webhookPayload;
+    private byte[] webhookBody;
+    private String webhookSignature;
+
+    @Setup
+    public void setUp() throws RazorpayException {
+        orderId = "order_Ixj2lW0ZyjrOq4";
+        paymentId = "pay_Ixj3HhM2c3ZoBj";
+        paymentSignature = Utils.getHash(orderId + "|" + paymentId, KEY_SECRET);
+        // Roughly the size of a payment.captured delivery
+        webhookPayload = "{\"entity\":\"event\",\"event\":\"payment.captured\",\"payload\":{\"payment\":{\"entity\":{"
+                + "\"id\":\"" + paymentId + "\",\"order_id\":\"" + orderId + "\",\"amount\":199900,"
+                + "\"currency\":\"INR\",\"status\":\"captured\",\"notes\":{\"pad\":\"" + "x".repeat(1200) + "\"}}}}}";
+        webhookBody = webhookPayload.getBytes(StandardCharsets.UTF_8);
+        webhookSignature = Utils.getHash(webhookPayload, WEBHOOK_SECRET);
+    }
+
+    @Benchmark
+    public boolean paymentSdk() throws RazorpayException {
+        JSONObject options = new JSONObject();
+        options.put("razorpay_order_id", orderId);
+        options.put("razorpay_payment_id", paymentId);
+        options.put("razorpay_signature", paymentSignature);
+        return Utils.verifyPaymentSignature(options, KEY_SECRET);
+    }
+
+    @Benchmark
+    public boolean paymentVerifier() {
+        return verifier.verifyPayment(orderId, paymentId, paymentSignature);
+    }
+
+    @Benchmark
+    public boolean webhookSdk() throws RazorpayException {
+        return Utils.verifyWebhookSignature(webhookPayload, webhookSignature, WEBHOOK_SECRET);
+    }
+
+    @Benchmark
+    public boolean webhookVerifier() {
+        return verifier.verifyWebhook(webhookBody, webhookSignature);
+    }
+}
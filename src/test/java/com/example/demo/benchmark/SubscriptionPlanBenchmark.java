@@ -0,0 +1,37 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.SubscriptionPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amount-to-plan mapping used when a confirmed payment creates its subscription
+ * ({@code PaymentService} and the webhook processor), for the first and last plan and a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionPlanBenchmark {
+
+    @Param({"1999.0", "17999.0", "123.0"})
+    private double amount;
+
+    @Benchmark
+    public Optional<SubscriptionPlan> forAmount() {
+        return SubscriptionPlan.forAmount(amount);
+    }
+}
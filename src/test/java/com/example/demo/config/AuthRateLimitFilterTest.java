@@ -0,0 +1,194 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthRateLimitFilterTest {
+
+    private static final String LOGIN = "/api/v1/auth/login";
+
+    // 3 attempts per IP, 2 per email, refilled far slower than the test runs
+    private final AuthRateLimitFilter filter = filter(3, 2, 64);
+
+    @Test
+    void limitsByEmailWhateverItsCaseOrPadding() throws Exception {
+        assertEquals(200, login("10.0.0.1", "{\"email\":\"a@example.com\"}").getStatus());
+        assertEquals(200, login("10.0.0.2", "{\"email\":\" A@Example.com \"}").getStatus());
+
+        MockHttpServletResponse throttled = login("10.0.0.3", "{\"email\":\"a@example.com\"}");
+        assertEquals(429, throttled.getStatus());
+        assertEquals("15", throttled.getHeader("Retry-After"));
+        // Another email from the same address is not held back by it
+        assertEquals(200, login("10.0.0.3", "{\"email\":\"b@example.com\"}").getStatus());
+    }
+
+    @Test
+    void limitsByIpBeforeReadingTheBody() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, login("10.0.0.1", "{\"email\":\"user" + i + "@example.com\"}").getStatus());
+        }
+
+        MockHttpServletResponse throttled = login("10.0.0.1", "not json");
+        assertEquals(429, throttled.getStatus());
+        assertEquals("10", throttled.getHeader("Retry-After"));
+        assertEquals("Too many attempts, try again later", throttled.getContentAsString());
+        assertEquals(200, login("10.0.0.2", "not json").getStatus());
+    }
+
+    @Test
+    void rejectsBodiesOverTheLimitWithoutCallingTheChain() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request(LOGIN, "10.0.0.1", "{\"email\":\"" + "a".repeat(64) + "\"}"), response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void replaysTheBodyToTheController() throws Exception {
+        String body = "{\"email\":\"a@example.com\",\"password\":\"pässword\"}";
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request(LOGIN, "10.0.0.1", body), new MockHttpServletResponse(), chain);
+
+        HttpServletRequest replayed = (HttpServletRequest) chain.getRequest();
+        assertNotNull(replayed);
+        assertEquals(body.getBytes(StandardCharsets.UTF_8).length, replayed.getContentLength());
+        assertEquals(body, new String(replayed.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(body, replayed.getReader().readLine());
+    }
+
+    @Test
+    void replaysTheBodyToANonBlockingReader() throws Exception {
+        String body = "{\"email\":\"a@example.com\"}";
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request(LOGIN, "10.0.0.1", body), new MockHttpServletResponse(), chain);
+        ServletInputStream in = ((HttpServletRequest) chain.getRequest()).getInputStream();
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("data");
+                byte[] buffer = new byte[8];
+                while (in.isReady() && !in.isFinished()) {
+                    received.write(buffer, 0, in.read(buffer));
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+
+        assertEquals(List.of("data", "done"), events);
+        assertEquals(body, received.toString(StandardCharsets.UTF_8));
+        assertTrue(in.isFinished());
+    }
+
+    @Test
+    void reportsAFailedReadToTheListener() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request(LOGIN, "10.0.0.1", "{}"), new MockHttpServletResponse(), chain);
+        ServletInputStream in = ((HttpServletRequest) chain.getRequest()).getInputStream();
+
+        List<Throwable> errors = new ArrayList<>();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                throw new IOException("listener failed");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                throw new AssertionError("not all data was read");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errors.add(t);
+            }
+        });
+
+        assertEquals(1, errors.size());
+        assertEquals("listener failed", errors.get(0).getMessage());
+    }
+
+    @Test
+    void leavesOtherRequestsAlone() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletRequest request = request("/api/v1/reviews", "10.0.0.1", "{\"email\":\"a@example.com\"}");
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            // Passed through unwrapped, the body untouched
+            assertEquals(request, chain.getRequest());
+        }
+
+        MockHttpServletRequest get = request(LOGIN, "10.0.0.1", "");
+        get.setMethod("GET");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(get, new MockHttpServletResponse(), chain);
+        assertEquals(get, chain.getRequest());
+    }
+
+    @Test
+    void doesNothingWhenDisabled() throws Exception {
+        ReflectionTestUtils.setField(filter, "enabled", false);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, login("10.0.0.1", "{\"email\":\"a@example.com\"}").getStatus());
+        }
+    }
+
+    private MockHttpServletResponse login(String ip, String body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(LOGIN, ip, body), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String ip, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setCharacterEncoding("UTF-8");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static AuthRateLimitFilter filter(int ipCapacity, int emailCapacity, int maxBody) {
+        AuthRateLimitFilter filter = new AuthRateLimitFilter(JsonMapper.builder().build(), new SimpleMeterRegistry(),
+                ipCapacity, Duration.ofSeconds(10), emailCapacity, Duration.ofSeconds(15), 4, 1000);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "maxBody", maxBody);
+        return filter;
+    }
+}
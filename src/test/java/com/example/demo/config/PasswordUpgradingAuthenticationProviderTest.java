@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.PasswordHashingUnavailableException;
+import com.example.demo.service.UserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PasswordUpgradingAuthenticationProviderTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    private final UserCache userCache = mock(UserCache.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final AuthenticationProvider provider =
+            new ApplicationConfig(userCache, userRepository).authenticationProvider(passwordEncoder);
+
+    @BeforeEach
+    void storedHashHasALowerCost() {
+        User user = User.builder().email(EMAIL).password("old-hash").build();
+        when(userCache.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("secret", "old-hash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("old-hash")).thenReturn(true);
+    }
+
+    @Test
+    void rehashesTheStoredPasswordAfterASuccessfulLogin() {
+        when(passwordEncoder.encode("secret")).thenReturn("new-hash");
+        when(userRepository.updatePasswordHash(EMAIL, "old-hash", "new-hash")).thenReturn(1);
+        User rehashed = User.builder().email(EMAIL).password("new-hash").build();
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(rehashed));
+
+        Authentication authentication = provider.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, "secret"));
+
+        assertTrue(authentication.isAuthenticated());
+        verify(userRepository).updatePasswordHash(EMAIL, "old-hash", "new-hash");
+        verify(userCache).put(rehashed);
+    }
+
+    @Test
+    void logsInWithoutTheRehashWhenHashingIsSaturated() {
+        when(passwordEncoder.encode("secret")).thenThrow(new PasswordHashingUnavailableException("Password hashing timed out"));
+
+        Authentication authentication = provider.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, "secret"));
+
+        assertTrue(authentication.isAuthenticated());
+        verify(userRepository, never()).updatePasswordHash(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void aWrongPasswordIsNeverRehashed() {
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, "wrong")));
+
+        verify(passwordEncoder, never()).encode("wrong");
+    }
+}
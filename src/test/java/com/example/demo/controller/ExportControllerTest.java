@@ -0,0 +1,171 @@
+package com.example.demo.controller;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The admin export end to end on H2: what comes out for awkward values in both formats, resuming
+ * with after and limit, and who may ask at all. The fetch and buffer sizes are tiny so rows span
+ * several fetches and buffer flushes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:export;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // The Flyway migrations are PostgreSQL-only, the H2 schema comes from the entities
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // Plus the revocation tables, which have no entities but are read by the scheduled refresh
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:db/migration/V4__token_revocation.sql",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "razorpay.key.id=rzp_test",
+        "razorpay.key.secret=test_secret",
+        "security.rate-limit.enabled=false",
+        "security.admin.emails=" + ExportControllerTest.ADMIN,
+        "export.fetch-size=2",
+        "export.buffer-size=16"
+})
+class ExportControllerTest {
+
+    static final String ADMIN = "admin@example.com";
+    private static final String USER = "user@example.com";
+    private static final String PASSWORD = "export-test-password";
+
+    private static final String QUOTED = "He said \"hi\", then left";
+    private static final String ESCAPED = "C:\\temp\\new\nline two\r\n\ttab \u0001 ünïcödé";
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 2, 3, 4, 5, 6000);
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void insertReviews() {
+        jdbcTemplate.update("delete from reviews");
+        jdbcTemplate.update("insert into reviews (id, user_name, rating, massage, created_at) values (?, ?, ?, ?, ?)",
+                1, QUOTED, 5, ESCAPED, CREATED_AT);
+        jdbcTemplate.update("insert into reviews (id, user_name, rating, massage, created_at) values (?, ?, ?, ?, ?)",
+                2, "plain", 3, null, null);
+        jdbcTemplate.update("insert into reviews (id, user_name, rating, massage, created_at) values (?, ?, ?, ?, ?)",
+                3, "last", 1, "", CREATED_AT);
+    }
+
+    @Test
+    void ndjsonRoundTripsQuotesBackslashesControlCharactersAndNulls() throws Exception {
+        HttpResponse<String> response = get("/api/v1/admin/export/reviews", token(ADMIN));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-ndjson", response.headers().firstValue("Content-Type").orElseThrow());
+        assertTrue(response.body().endsWith("}\n"));
+        List<String> lines = response.body().lines().toList();
+        assertEquals(3, lines.size());
+
+        JsonNode first = jsonMapper.readTree(lines.get(0));
+        assertEquals(1, first.get("id").asLong());
+        assertEquals(QUOTED, first.get("user_name").asString());
+        assertEquals(5, first.get("rating").asInt());
+        assertTrue(first.get("rating").isNumber());
+        assertEquals(ESCAPED, first.get("massage").asString());
+        assertEquals(CREATED_AT.toString(), first.get("created_at").asString());
+
+        JsonNode second = jsonMapper.readTree(lines.get(1));
+        assertTrue(second.get("massage").isNull());
+        assertTrue(second.get("created_at").isNull());
+
+        assertEquals("", jsonMapper.readTree(lines.get(2)).get("massage").asString());
+    }
+
+    @Test
+    void csvQuotesOnlyFieldsThatNeedIt() throws Exception {
+        HttpResponse<String> response = get("/api/v1/admin/export/reviews?format=csv", token(ADMIN));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("id,user_name,rating,massage,created_at\r\n"
+                + "1,\"He said \"\"hi\"\", then left\",5,\"" + ESCAPED + "\"," + CREATED_AT + "\r\n"
+                + "2,plain,3,,\r\n"
+                + "3,last,1,," + CREATED_AT + "\r\n", response.body());
+    }
+
+    @Test
+    void resumesAfterTheLastIdReceivedAndStopsAtTheLimit() throws Exception {
+        String token = token(ADMIN);
+
+        assertEquals(List.of(2L, 3L), ids(get("/api/v1/admin/export/reviews?after=1", token)));
+        assertEquals(List.of(2L), ids(get("/api/v1/admin/export/reviews?after=1&limit=1", token)));
+        assertEquals(List.of(), ids(get("/api/v1/admin/export/reviews?after=3", token)));
+    }
+
+    @Test
+    void onlyAdminsMayExport() throws Exception {
+        assertEquals(403, get("/api/v1/admin/export/reviews", token(USER)).statusCode());
+        assertEquals(403, get("/api/v1/admin/export/reviews", null).statusCode());
+    }
+
+    @Test
+    void unknownTablesAndFormatsAreRejected() throws Exception {
+        String token = token(ADMIN);
+
+        assertEquals(400, get("/api/v1/admin/export/users", token).statusCode());
+        assertEquals(400, get("/api/v1/admin/export/reviews?format=xml", token).statusCode());
+        assertEquals(400, get("/api/v1/admin/export/reviews?after=-1", token).statusCode());
+    }
+
+    private List<Long> ids(HttpResponse<String> response) {
+        assertEquals(200, response.statusCode());
+        return response.body().lines().map(line -> jsonMapper.readTree(line).get("id").asLong()).toList();
+    }
+
+    // Registering twice is rejected, which is fine: the account from the first test is still there
+    private String token(String email) throws Exception {
+        JSONObject user = new JSONObject().put("fullName", "Export Test").put("email", email).put("password", PASSWORD);
+        httpClient.send(post("/api/v1/auth/register", user), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<String> login = httpClient.send(
+                post("/api/v1/auth/login", new JSONObject().put("email", email).put("password", PASSWORD)),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode());
+        return login.body();
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest post(String path, JSONObject body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.ReviewCursor;
+import com.example.demo.dto.ReviewView;
+import com.example.demo.repository.ReviewRepository;
+import com.example.demo.service.CacheInvalidationBus;
+import com.example.demo.service.ReviewFeedCache;
+import com.example.demo.service.ReviewRatingStats;
+import com.example.demo.service.ReviewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs of the cached feed pages, and the database path for pages past them.
+ */
+class ReviewControllerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final ReviewFeedCache reviewFeedCache =
+            new ReviewFeedCache(reviewRepository, jsonMapper, mock(CacheInvalidationBus.class));
+    private final List<ReviewView> feed = List.of(review(4), review(3), review(2), review(1));
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // One cached page of two
+        ReflectionTestUtils.setField(reviewFeedCache, "pageSize", 2);
+        ReflectionTestUtils.setField(reviewFeedCache, "cachedPages", 1);
+        when(reviewRepository.findFeedFirstPage(any(Limit.class))).thenReturn(feed.subList(0, 2));
+        reviewFeedCache.warmUp();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (reviewFeedCache.find(null, 2) == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        ReviewController controller = new ReviewController(reviewRepository, mock(ReviewService.class),
+                reviewFeedCache, mock(ReviewRatingStats.class));
+        ReflectionTestUtils.setField(controller, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(controller, "maxPageSize", 100);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void servesTheCachedFirstPageWithAStrongEtagAndAnswers304ToIt() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/v1/reviews"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string(ReviewController.NEXT_CURSOR_HEADER, ReviewCursor.after(review(3)).encode()))
+                .andExpect(content().bytes(jsonMapper.writeValueAsBytes(feed.subList(0, 2))))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/reviews").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().bytes(new byte[0]));
+
+        // A new review changes the page, so the old ETag no longer matches
+        reviewFeedCache.onReviewSaved(review(5));
+        mockMvc.perform(get("/api/v1/reviews").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(jsonMapper.writeValueAsBytes(List.of(review(5), review(4)))));
+    }
+
+    @Test
+    void gzipHasItsOwnEtag() throws Exception {
+        String plainEtag = mockMvc.perform(get("/api/v1/reviews")).andReturn().getResponse().getHeader("ETag");
+
+        MvcResult gzipped = mockMvc.perform(get("/api/v1/reviews").header("Accept-Encoding", "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+        String gzipEtag = gzipped.getResponse().getHeader("ETag");
+        assertNotEquals(plainEtag, gzipEtag);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+            assertArrayEquals(jsonMapper.writeValueAsBytes(feed.subList(0, 2)), in.readAllBytes());
+        }
+
+        // Same representation only: the plain ETag does not validate the gzip one
+        mockMvc.perform(get("/api/v1/reviews").header("Accept-Encoding", "gzip").header("If-None-Match", plainEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/reviews").header("Accept-Encoding", "gzip").header("If-None-Match", gzipEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void pagesPastTheCacheComeFromTheKeysetQuery() throws Exception {
+        when(reviewRepository.findFeedPageAfter(eq(review(3).createdAt()), eq(3L), any(Limit.class)))
+                .thenReturn(feed.subList(2, 4));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/reviews").param("cursor", ReviewCursor.after(review(3)).encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().string(ReviewController.NEXT_CURSOR_HEADER, ReviewCursor.after(review(1)).encode()))
+                .andReturn();
+        assertEquals(List.of(2L, 1L), jsonMapper.readTree(result.getResponse().getContentAsString())
+                .valueStream().map(node -> node.get("id").asLong()).toList());
+
+        mockMvc.perform(get("/api/v1/reviews").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static ReviewView review(long id) {
+        return new ReviewView(id, "user", 5, "text", T0.plusMinutes(id));
+    }
+}
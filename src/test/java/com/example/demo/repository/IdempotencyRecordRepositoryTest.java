@@ -0,0 +1,89 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.IdempotencyRecord;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Claiming, completing and taking over Idempotency-Keys. The claim is an upsert PostgreSQL
+ * evaluates, so this runs against a local Postgres like {@link QueryPlanTest}; skipped otherwise.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = "jdbc:postgresql:.+")
+@DataJpaTest(properties = {
+        "spring.datasource.url=${TEST_POSTGRES_URL}",
+        "spring.datasource.username=${TEST_POSTGRES_USERNAME:postgres}",
+        "spring.datasource.password=${TEST_POSTGRES_PASSWORD:postgres}",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "razorpay.key.id=rzp_test",
+        "razorpay.key.secret=test_secret"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IdempotencyRecordRepositoryTest {
+
+    private static final String KEY = "user@example.com|create-order|key-1";
+    private static final LocalDateTime T0 = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void aKeyInProgressWithinItsLeaseIsNotClaimedAgain() {
+        assertEquals(1, claim("hash-a", T0));
+        assertEquals(0, claim("hash-a", T0.plusSeconds(30)));
+    }
+
+    @Test
+    void aKeyLeftInProgressPastItsLeaseIsTakenOverAndTheOldOwnerLosesIt() {
+        assertEquals(1, claim("hash-a", T0));
+
+        LocalDateTime retry = T0.plusMinutes(2);
+        assertEquals(1, claim("hash-b", retry));
+
+        assertEquals(0, repository.complete(KEY, T0, 200, null, "stale"));
+        assertEquals(0, repository.release(KEY, T0));
+        assertEquals(1, repository.complete(KEY, retry, 200, null, "order"));
+
+        IdempotencyRecord record = reload();
+        assertEquals("hash-b", record.getRequestHash());
+        assertEquals("order", record.getResponseBody());
+    }
+
+    @Test
+    void aCompletedKeyIsKeptUntilItExpiresAndThenClaimedAfresh() {
+        assertEquals(1, claim("hash-a", T0));
+        assertEquals(1, repository.complete(KEY, T0, 200, null, "order"));
+
+        assertEquals(0, claim("hash-a", T0.plusMinutes(2)));
+        assertEquals("COMPLETED", reload().getStatus());
+
+        assertEquals(1, claim("hash-b", T0.plusHours(25)));
+        IdempotencyRecord record = reload();
+        assertEquals("IN_PROGRESS", record.getStatus());
+        assertNull(record.getResponseBody());
+    }
+
+    // 24h ttl and 1m lease, as configured by default
+    private int claim(String requestHash, LocalDateTime now) {
+        return repository.claim(KEY, requestHash, now, now.plusHours(24), now.minusMinutes(1));
+    }
+
+    private IdempotencyRecord reload() {
+        entityManager.clear();
+        return repository.findById(KEY).orElseThrow();
+    }
+}
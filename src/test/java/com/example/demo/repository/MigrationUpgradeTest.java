@@ -0,0 +1,106 @@
+package com.example.demo.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Upgrades a database in the state ddl-auto left it before Flyway owned the schema (baselined at
+ * V1, then V1_1 onwards) and checks it ends up with the same tables, columns, constraints and
+ * indexes as one migrated from empty, with its rows intact. Runs against a local Postgres in two
+ * throwaway schemas, e.g. {@code TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/demo_test mvn test};
+ * skipped otherwise.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = "jdbc:postgresql:.+")
+class MigrationUpgradeTest {
+
+    private static final String UPGRADED = "migration_upgraded";
+    private static final String FRESH = "migration_fresh";
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            System.getenv("TEST_POSTGRES_URL"),
+            System.getenv().getOrDefault("TEST_POSTGRES_USERNAME", "postgres"),
+            System.getenv().getOrDefault("TEST_POSTGRES_PASSWORD", "postgres"));
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @BeforeEach
+    void createSchemas() {
+        dropSchemas();
+        jdbcTemplate.execute("create schema " + UPGRADED);
+        jdbcTemplate.execute("create schema " + FRESH);
+    }
+
+    @AfterEach
+    void dropSchemas() {
+        jdbcTemplate.execute("drop schema if exists " + UPGRADED + " cascade");
+        jdbcTemplate.execute("drop schema if exists " + FRESH + " cascade");
+    }
+
+    @Test
+    void databaseFromBeforeTheMigrationsUpgradesToTheFreshSchema() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("set search_path to " + UPGRADED);
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/pre-migration-schema.sql"));
+        }
+
+        migrate(UPGRADED);
+        migrate(FRESH);
+
+        assertEquals(columns(FRESH), columns(UPGRADED));
+        assertEquals(constraints(FRESH), constraints(UPGRADED));
+        assertEquals(indexes(FRESH), indexes(UPGRADED));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from " + UPGRADED + ".subscriptions where active and user_id = 1", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from " + UPGRADED + ".reviews", Integer.class));
+    }
+
+    private void migrate(String schema) {
+        // Same settings as spring.flyway.* in application.properties
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(schema)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    private List<String> columns(String schema) {
+        return jdbcTemplate.queryForList("""
+                select table_name || '.' || column_name || ' ' || data_type || ' nullable=' || is_nullable
+                from information_schema.columns
+                where table_schema = ? and table_name <> 'flyway_schema_history'
+                order by 1""", String.class, schema);
+    }
+
+    // Names differ (Hibernate generated its own for foreign keys), so compare definitions only
+    private List<String> constraints(String schema) {
+        return jdbcTemplate.queryForList("""
+                select rel.relname || ' ' || replace(pg_get_constraintdef(con.oid), ? || '.', '')
+                from pg_constraint con
+                         join pg_class rel on rel.oid = con.conrelid
+                where con.connamespace = ?::regnamespace and rel.relname <> 'flyway_schema_history'
+                order by 1""", String.class, schema, schema);
+    }
+
+    private List<String> indexes(String schema) {
+        return jdbcTemplate.queryForList("""
+                select replace(indexdef, ? || '.', '')
+                from pg_indexes
+                where schemaname = ? and tablename <> 'flyway_schema_history'
+                order by 1""", String.class, schema, schema);
+    }
+}
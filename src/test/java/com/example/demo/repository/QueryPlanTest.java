@@ -0,0 +1,75 @@
+package com.example.demo.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that every hot repository predicate can be answered from an index of the Flyway
+ * schema. Runs against a local Postgres, e.g.
+ * {@code TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/demo_test mvn test}; skipped otherwise.
+ * <p>
+ * Sequential scans are disabled for the check, so on near-empty tables the planner still
+ * picks an index whenever a usable one exists, and a missing one shows up as a Seq Scan.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = "jdbc:postgresql:.+")
+@DataJpaTest(properties = {
+        "spring.datasource.url=${TEST_POSTGRES_URL}",
+        "spring.datasource.username=${TEST_POSTGRES_USERNAME:postgres}",
+        "spring.datasource.password=${TEST_POSTGRES_PASSWORD:postgres}",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "razorpay.key.id=rzp_test",
+        "razorpay.key.secret=test_secret"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class QueryPlanTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void disableSequentialScans() {
+        // Local to the test transaction, which is rolled back
+        entityManager.createNativeQuery("set local enable_seqscan = off").executeUpdate();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "PaymentRepository.findSummaryByRazorpayOrderId | idx_payments_razorpay_order_id"
+                    + " | select id, user_id, amount, status from payments where razorpay_order_id = 'order_x'",
+            "PaymentRepository.findIdsByStatusAndCreatedAtBefore | idx_payments_pending_created_at"
+                    + " | select id from payments where status = 'PENDING' and created_at < now()",
+            "payments by user and status | idx_payments_user_id_status"
+                    + " | select id from payments where user_id = 1 and status = 'SUCCESS'",
+            "SubscriptionRepository.findEntitlement | ux_subscriptions_user_id_active"
+                    + " | select plan_name, start_date, end_date from subscriptions where user_id = 1 and active = true",
+            "SubscriptionRepository.findActiveEndingBefore | idx_subscriptions_active_end_date_partial"
+                    + " | select id, user_id, end_date from subscriptions where active = true and end_date <= now()",
+            "ReviewRepository.findFeedPageAfter | idx_reviews_created_at_id"
+                    + " | select id from reviews where (created_at, id) < (now(), 100) order by created_at desc, id desc limit 20",
+            "WebhookInbox.recover | idx_webhook_events_unprocessed_received_at"
+                    + " | select event_id from webhook_events where processed_at is null and attempts < 5 and received_at < now() order by received_at limit 200",
+            "IdempotencyRecordRepository.deleteExpired | idx_idempotency_keys_expires_at"
+                    + " | select id from idempotency_keys where expires_at < now()"
+    })
+    void usesIndex(String path, String index, String sql) {
+        @SuppressWarnings("unchecked")
+        List<String> plan = entityManager.createNativeQuery("explain " + sql).getResultList();
+        String text = String.join("\n", plan);
+
+        assertFalse(text.contains("Seq Scan"), path + " scans sequentially:\n" + text);
+        assertTrue(text.contains(index), path + " does not use " + index + ":\n" + text);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void hashesOnThePoolAndFlagsLowerCostHashesForUpgrade() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(5, 1, 4, Duration.ofSeconds(5), registry)) {
+            String hash = encoder.encode("secret");
+            assertTrue(encoder.matches("secret", hash));
+            assertFalse(encoder.matches("wrong", hash));
+
+            assertFalse(encoder.upgradeEncoding(hash));
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+            assertEquals(2, registry.get("password.hash").tag("operation", "matches").tag("outcome", "success").timer().count());
+        }
+    }
+
+    @Test
+    void rejectsWhenThePoolIsFullAndFreesTheSlotsOfCallersThatGaveUp() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // One thread, one queue slot, and a cost that keeps the thread busy far longer than callers wait
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(14, 1, 1, Duration.ofMillis(200), registry)) {
+            PasswordHashingUnavailableException running = assertThrows(PasswordHashingUnavailableException.class, () -> encoder.encode("a"));
+            assertEquals("Password hashing timed out", running.getMessage());
+
+            Thread queued = Thread.ofVirtual().start(() -> assertThrows(PasswordHashingUnavailableException.class, () -> encoder.encode("b")));
+            while (queueDepth(registry) == 0) {
+                Thread.onSpinWait();
+            }
+            PasswordHashingUnavailableException full = assertThrows(PasswordHashingUnavailableException.class, () -> encoder.encode("c"));
+            assertEquals("Password hashing is at capacity", full.getMessage());
+
+            queued.join();
+            // "a" is still hashing, but "b" no longer holds the queue slot
+            assertEquals(0, queueDepth(registry));
+            assertEquals(1, registry.get("password.hash.active").gauge().value());
+            assertEquals(3, registry.get("password.hash").tag("operation", "encode").tag("outcome", "rejected").timer().count());
+        }
+    }
+
+    private static double queueDepth(SimpleMeterRegistry registry) {
+        return registry.get("password.hash.queue.depth").gauge().value();
+    }
+}
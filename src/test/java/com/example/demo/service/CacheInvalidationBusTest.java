@@ -0,0 +1,234 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two buses on one local Postgres, as two nodes would be; skipped without
+ * {@code TEST_POSTGRES_URL}. The test also listens on the channel itself to see the raw NOTIFY
+ * payloads, and sends its own to check a bus is listening before relying on it.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = "jdbc:postgresql:.+")
+class CacheInvalidationBusTest {
+
+    private static final String CHANNEL = "cache_invalidation";
+    private static final String TOPIC = "bus-test";
+    private static final String PROBES = "bus-test-probe";
+    private static final String URL = System.getenv("TEST_POSTGRES_URL");
+    private static final String USERNAME = System.getenv().getOrDefault("TEST_POSTGRES_USERNAME", "postgres");
+    private static final String PASSWORD = System.getenv().getOrDefault("TEST_POSTGRES_PASSWORD", "postgres");
+
+    private final BlockingQueue<String> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> receivedByB = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> probesOfA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> probesOfB = new LinkedBlockingQueue<>();
+    private final AtomicInteger resetsOfB = new AtomicInteger();
+
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+    private Connection listener;
+    private int probes;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        listener = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        try (Statement statement = listener.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        }
+
+        busA = bus("bus-test-a");
+        busA.subscribe(TOPIC, receivedByA::add, () -> { });
+        busA.subscribe(PROBES, probesOfA::add, () -> { });
+        busB = bus("bus-test-b");
+        busB.subscribe(TOPIC, receivedByB::add, resetsOfB::incrementAndGet);
+        busB.subscribe(PROBES, probesOfB::add, () -> { });
+        busB.start();
+        awaitListening(probesOfB);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        busA.stop();
+        busB.stop();
+        listener.close();
+    }
+
+    @Test
+    void deliversToTheOtherNodeButNotBackToTheSender() throws Exception {
+        busA.start();
+        awaitListening(probesOfA);
+
+        busA.publish(TOPIC, "user:1");
+
+        assertEquals("user:1", receivedByB.poll(5, TimeUnit.SECONDS));
+        // A's own message reached A's connection at the same time as B's
+        assertNull(receivedByA.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void keysPublishedWithinOneWindowGoOutOnceInOneNotify() throws Exception {
+        // Queued before A connects, so all of them are in its first flush
+        ReflectionTestUtils.setField(busA, "running", true);
+        for (int i = 0; i < 100; i++) {
+            busA.publish(TOPIC, "hot");
+        }
+        busA.publish(TOPIC, "cold");
+        busA.start();
+
+        List<String> payloads = payloadsFrom(busA, 1);
+        assertEquals(1, payloads.size());
+        assertEquals(Set.of(TOPIC + ":hot", TOPIC + ":cold"), Set.copyOf(entries(payloads)));
+        assertEquals(Set.of("hot", "cold"), Set.of(receivedByB.poll(5, TimeUnit.SECONDS), receivedByB.poll(5, TimeUnit.SECONDS)));
+        assertNull(receivedByB.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void aLargeFlushIsSplitIntoNotifiesUnder7000Bytes() throws Exception {
+        ReflectionTestUtils.setField(busA, "running", true);
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            String key = "review:" + i + ":" + "ü".repeat(20);
+            keys.add(key);
+            busA.publish(TOPIC, key);
+        }
+        busA.start();
+
+        List<String> payloads = payloadsFrom(busA, 2);
+        for (String payload : payloads) {
+            int bytes = payload.getBytes(StandardCharsets.UTF_8).length;
+            assertTrue(bytes <= 7000, "payload of " + bytes + " bytes");
+        }
+        List<String> entries = entries(payloads);
+        assertEquals(keys.size(), entries.size());
+        assertEquals(keys, entries.stream().map(entry -> entry.substring(TOPIC.length() + 1)).collect(Collectors.toSet()));
+
+        Set<String> delivered = new HashSet<>();
+        while (delivered.size() < keys.size()) {
+            String key = receivedByB.poll(5, TimeUnit.SECONDS);
+            if (key == null) {
+                break;
+            }
+            delivered.add(key);
+        }
+        assertEquals(keys, delivered);
+    }
+
+    @Test
+    void subscribersAreResetAfterAReconnect() throws Exception {
+        busA.start();
+        awaitListening(probesOfA);
+        assertEquals(0, resetsOfB.get());
+
+        try (Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("select pg_terminate_backend(pid) from pg_stat_activity where application_name = 'bus-test-b'");
+        }
+
+        // B waits a second before reconnecting
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (resetsOfB.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, resetsOfB.get());
+        receivedByB.clear();
+        busA.publish(TOPIC, "after-reconnect");
+        assertEquals("after-reconnect", receivedByB.poll(5, TimeUnit.SECONDS));
+    }
+
+    private static CacheInvalidationBus bus(String applicationName) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(URL + (URL.contains("?") ? "&" : "?") + "ApplicationName=" + applicationName);
+        properties.setUsername(USERNAME);
+        properties.setPassword(PASSWORD);
+        CacheInvalidationBus bus = new CacheInvalidationBus(properties);
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "batchWindow", Duration.ofMillis(10));
+        return bus;
+    }
+
+    // Sends probes as a third node until the bus hands one to its subscriber
+    private void awaitListening(BlockingQueue<String> probesReceived) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            String probe = "probe-" + probes++;
+            try (PreparedStatement statement = listener.prepareStatement("select pg_notify(?, ?)")) {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, "test-node\n" + PROBES + ":" + probe);
+                statement.executeQuery().close();
+            }
+            if (probe.equals(probesReceived.poll(200, TimeUnit.MILLISECONDS))) {
+                probesReceived.clear();
+                drain(listener);
+                return;
+            }
+        }
+        throw new AssertionError("bus is not listening");
+    }
+
+    // Raw payloads sent by the bus, waiting for at least the given number
+    private List<String> payloadsFrom(CacheInvalidationBus bus, int atLeast) throws Exception {
+        String nodeId = (String) ReflectionTestUtils.getField(bus, "nodeId");
+        List<String> payloads = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long quietUntil = 0;
+        while (System.nanoTime() < deadline && (payloads.size() < atLeast || System.nanoTime() < quietUntil)) {
+            for (String payload : drain(listener)) {
+                if (payload.startsWith(nodeId + "\n")) {
+                    payloads.add(payload);
+                }
+            }
+            if (payloads.size() >= atLeast && quietUntil == 0) {
+                // Any further payloads of the same flush follow right away
+                quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            }
+        }
+        return payloads;
+    }
+
+    private static List<String> drain(Connection connection) throws SQLException {
+        PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(50);
+        List<String> payloads = new ArrayList<>();
+        if (notifications != null) {
+            for (PGNotification notification : notifications) {
+                payloads.add(notification.getParameter());
+            }
+        }
+        return payloads;
+    }
+
+    private static List<String> entries(List<String> payloads) {
+        List<String> entries = new ArrayList<>();
+        for (String payload : payloads) {
+            List<String> lines = List.of(payload.split("\n"));
+            entries.addAll(lines.subList(1, lines.size()));
+        }
+        return entries;
+    }
+}
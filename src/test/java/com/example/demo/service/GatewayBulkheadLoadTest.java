@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A model, not a measurement of the application: nothing is booted and
+ * {@code spring.threads.virtual.enabled} plays no part. A 200-thread pool standing in for Tomcat's
+ * workers and a virtual-thread-per-task executor run a mix of sleeps standing in for gateway-bound
+ * create-order calls and short database-bound status checks, behind a real {@link Bulkhead} and a
+ * semaphore the size of the connection pool. It shows how the two thread models queue and checks
+ * the bulkhead bound; for numbers from the running application in both modes use
+ * {@code PaymentFlowLoadTest}.
+ * Run with {@code mvn test -Pload-test}; tune with -Dload.requests, -Dload.gateway-share,
+ * -Dload.gateway-latency-ms and -Dload.bulkhead.
+ */
+@Tag("load")
+class GatewayBulkheadLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 5_000);
+    private static final double GATEWAY_SHARE = Double.parseDouble(System.getProperty("load.gateway-share", "0.2"));
+    private static final long GATEWAY_LATENCY_MS = Long.getLong("load.gateway-latency-ms", 50);
+    private static final int BULKHEAD = Integer.getInteger("load.bulkhead", 64);
+    private static final int DB_POOL = 10;
+    private static final long DB_LATENCY_MS = 2;
+
+    @Test
+    void platformThreadsVersusVirtualThreads() throws Exception {
+        Result platform = run("platform(200)", Executors.newFixedThreadPool(200));
+        Result virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor());
+
+        System.out.println(platform);
+        System.out.println(virtual);
+
+        assertTrue(platform.maxGatewayInFlight() <= BULKHEAD);
+        assertTrue(virtual.maxGatewayInFlight() <= BULKHEAD);
+    }
+
+    private Result run(String mode, ExecutorService executor) throws Exception {
+        Bulkhead bulkhead = new Bulkhead("gateway", BULKHEAD, Duration.ofSeconds(2));
+        Semaphore connectionPool = new Semaphore(DB_POOL, true);
+        AtomicInteger gatewayInFlight = new AtomicInteger();
+        AtomicInteger maxGatewayInFlight = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        int gatewayEvery = (int) Math.max(1, Math.round(1 / GATEWAY_SHARE));
+        List<Future<long[]>> futures = new ArrayList<>(REQUESTS);
+        long start = System.nanoTime();
+        try (executor) {
+            for (int i = 0; i < REQUESTS; i++) {
+                boolean gatewayCall = i % gatewayEvery == 0;
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    withConnection(connectionPool);
+                    if (gatewayCall) {
+                        try {
+                            bulkhead.execute(() -> {
+                                int inFlight = gatewayInFlight.incrementAndGet();
+                                maxGatewayInFlight.accumulateAndGet(inFlight, Math::max);
+                                Thread.sleep(GATEWAY_LATENCY_MS);
+                                gatewayInFlight.decrementAndGet();
+                                return null;
+                            });
+                        } catch (GatewayUnavailableException e) {
+                            rejected.incrementAndGet();
+                        }
+                        withConnection(connectionPool);
+                    }
+                    return new long[]{gatewayCall ? 1 : 0, System.nanoTime() - submitted};
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<Long> gatewayLatencies = new ArrayList<>();
+        List<Long> dbLatencies = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            long[] sample = future.get();
+            (sample[0] == 1 ? gatewayLatencies : dbLatencies).add(sample[1]);
+        }
+        return new Result(mode, REQUESTS / (elapsed / 1e9), p99(gatewayLatencies), p99(dbLatencies),
+                rejected.get(), maxGatewayInFlight.get());
+    }
+
+    private static void withConnection(Semaphore pool) throws InterruptedException {
+        pool.acquire();
+        try {
+            Thread.sleep(DB_LATENCY_MS);
+        } finally {
+            pool.release();
+        }
+    }
+
+    private static double p99(List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return 0;
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)] / 1e6;
+    }
+
+    private record Result(String mode, double throughput, double gatewayP99Ms, double dbOnlyP99Ms,
+                          int rejected, int maxGatewayInFlight) {
+        @Override
+        public String toString() {
+            return String.format("%-14s %8.0f req/s  p99 create-order %8.1f ms  p99 status %8.1f ms  rejected %d  max in-flight %d",
+                    mode, throughput, gatewayP99Ms, dbOnlyP99Ms, rejected, maxGatewayInFlight);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises the resilience layer against a local HTTP stub that injects latency and faults.
+ */
+class GatewayResilienceTest {
+
+    private HttpServer stub;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long latencyMs;
+    // Latency of the first request only, to make the primary attempt of a hedged call slow
+    private volatile long firstLatencyMs = -1;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stub.createContext("/v1/orders", exchange -> {
+            long delay = hits.getAndIncrement() == 0 && firstLatencyMs >= 0 ? firstLatencyMs : latencyMs;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"entity\":\"collection\",\"items\":[]}".getBytes();
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stub.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void slowCallTimesOut() {
+        latencyMs = 2_000;
+        GatewayResilience resilience = resilience(new CircuitBreaker(10, 5, 50, Duration.ofSeconds(30), 1));
+
+        long start = System.nanoTime();
+        assertThrows(GatewayTimeoutException.class,
+                () -> resilience.call("orders.fetchAll", Duration.ofMillis(100), this::fetchOrders));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertEquals(1, meterRegistry.get("gateway.calls").tag("outcome", "timeout").timer().count());
+    }
+
+    @Test
+    void circuitOpensOnFailuresAndFailsFast() {
+        status = 500;
+        GatewayResilience resilience = resilience(new CircuitBreaker(10, 5, 50, Duration.ofSeconds(30), 1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IOException.class,
+                    () -> resilience.call("orders.fetchAll", Duration.ofSeconds(2), this::fetchOrders));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, resilience.circuitBreaker().state());
+
+        GatewayUnavailableException rejected = assertThrows(GatewayUnavailableException.class,
+                () -> resilience.call("orders.fetchAll", Duration.ofSeconds(2), this::fetchOrders));
+        assertTrue(rejected.getMessage().contains("circuit is open"));
+        assertEquals(5, hits.get());
+    }
+
+    @Test
+    void halfOpenTrialClosesCircuitAfterRecovery() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(10, 2, 50, Duration.ofSeconds(30), 1, clock::get);
+        GatewayResilience resilience = resilience(breaker);
+
+        status = 500;
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IOException.class,
+                    () -> resilience.call("orders.fetchAll", Duration.ofSeconds(2), this::fetchOrders));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        status = 200;
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        resilience.call("orders.fetchAll", Duration.ofSeconds(2), this::fetchOrders);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void hedgedCallReturnsTheFasterAttempt() throws Exception {
+        firstLatencyMs = 3_000;
+        GatewayResilience resilience = resilience(new CircuitBreaker(10, 5, 50, Duration.ofSeconds(30), 1));
+
+        long start = System.nanoTime();
+        resilience.call("orders.fetchAll", Duration.ofSeconds(5), Duration.ofMillis(100), this::fetchOrders);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(2, hits.get());
+    }
+
+    private GatewayResilience resilience(CircuitBreaker breaker) {
+        return new GatewayResilience("stub", new Bulkhead("stub", 8, Duration.ofMillis(100)), breaker,
+                executor, meterRegistry, error -> false);
+    }
+
+    private String fetchOrders() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + stub.getAddress().getPort() + "/v1/orders")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 500) {
+            throw new IOException("HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+}
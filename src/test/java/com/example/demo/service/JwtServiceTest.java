@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+
+    private static final UserDetails USER = User.withUsername("a@example.com").password("x").build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void repeatedVerificationsAreServedFromTheCacheUntilTheTokenExpires() {
+        JwtService jwtService = new JwtService(meterRegistry, 100, Duration.ofHours(1));
+        String token = jwtService.generateToken(USER);
+
+        Claims claims = jwtService.verifyToken(token);
+        jwtService.verifyToken(token);
+
+        assertEquals(1, meterRegistry.timer("jwt.parse").count());
+        String digest = jwtService.claimsCache().asMap().keySet().iterator().next();
+        long expiresAfterMillis = jwtService.claimsCache().policy().expireVariably().orElseThrow()
+                .getExpiresAfter(digest, TimeUnit.MILLISECONDS).orElseThrow();
+        long untilExpMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+        assertTrue(expiresAfterMillis <= untilExpMillis && expiresAfterMillis > untilExpMillis - 1000,
+                expiresAfterMillis + " ms left in the cache, " + untilExpMillis + " ms until exp");
+    }
+
+    @Test
+    void anEntryIsGoneOnceItsTokenExpires() throws Exception {
+        JwtService jwtService = new JwtService(meterRegistry, 100, Duration.ofMillis(1500));
+        String token = jwtService.generateToken(USER);
+        Claims claims = jwtService.verifyToken(token);
+        String digest = jwtService.claimsCache().asMap().keySet().iterator().next();
+
+        // exp is in whole seconds, so this is at most 1.5s away
+        Thread.sleep(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()) + 50);
+
+        assertNull(jwtService.claimsCache().getIfPresent(digest));
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verifyToken(token));
+    }
+
+    @Test
+    void tamperedAndExpiredTokensAreNeverCached() {
+        JwtService jwtService = new JwtService(meterRegistry, 100, Duration.ofHours(1));
+        String token = jwtService.generateToken(USER);
+        jwtService.verifyToken(token);
+
+        String[] parts = token.split("\\.");
+        String otherSubject = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(parts[1])).replace("a@example.com", "b@example.com").getBytes());
+        String tamperedPayload = parts[0] + "." + otherSubject + "." + parts[2];
+        String tamperedSignature = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+        String expired = new JwtService(meterRegistry, 0, Duration.ofSeconds(-10)).generateToken(USER);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(SignatureException.class, () -> jwtService.verifyToken(tamperedPayload));
+            assertThrows(SignatureException.class, () -> jwtService.verifyToken(tamperedSignature));
+            assertThrows(ExpiredJwtException.class, () -> jwtService.verifyToken(expired));
+        }
+        assertEquals(1, jwtService.claimsCache().asMap().size());
+    }
+
+    @Test
+    void callersCannotChangeTheCachedClaims() {
+        JwtService jwtService = new JwtService(meterRegistry, 100, Duration.ofHours(1));
+        String token = jwtService.generateToken(USER);
+
+        jwtService.verifyToken(token).setSubject("b@example.com");
+        Claims cached = jwtService.verifyToken(token);
+        cached.put("role", "admin");
+
+        assertEquals("a@example.com", jwtService.verifyToken(token).getSubject());
+        assertNull(jwtService.verifyToken(token).get("role"));
+        assertEquals(1, meterRegistry.timer("jwt.parse").count());
+    }
+
+    @Test
+    void maxSizeZeroVerifiesEveryTime() {
+        JwtService jwtService = new JwtService(meterRegistry, 0, Duration.ofHours(1));
+        String token = jwtService.generateToken(USER);
+
+        jwtService.verifyToken(token);
+        jwtService.verifyToken(token);
+
+        assertNull(jwtService.claimsCache());
+        assertEquals(2, meterRegistry.timer("jwt.parse").count());
+    }
+}
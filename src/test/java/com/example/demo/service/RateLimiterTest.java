@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void allowsBurstThenRefillsOneTokenPerPeriod() {
+        AtomicLong clock = new AtomicLong(1_000 * SECOND);
+        RateLimiter limiter = new RateLimiter(3, Duration.ofSeconds(2), 4, 100, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        }
+        assertEquals(2 * SECOND, limiter.tryAcquire("10.0.0.1"));
+        // Other keys have their own bucket
+        assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+
+        clock.addAndGet(SECOND);
+        assertEquals(SECOND, limiter.tryAcquire("10.0.0.1"));
+        clock.addAndGet(SECOND);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+    }
+
+    @Test
+    void evictsOnlyRefilledBucketsAndStaysBounded() {
+        AtomicLong clock = new AtomicLong(0);
+        RateLimiter limiter = new RateLimiter(2, Duration.ofSeconds(1), 1, 2, clock::get);
+
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        limiter.tryAcquire("b");
+        // Shard full and nothing idle yet: a new key is let through untracked
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertEquals(2, limiter.size());
+
+        clock.addAndGet(SECOND);
+        assertEquals(1, limiter.evictIdle());
+        assertTrue(limiter.tryAcquire("b") == 0);
+        assertTrue(limiter.tryAcquire("b") > 0);
+    }
+}
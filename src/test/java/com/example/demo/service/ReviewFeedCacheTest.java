@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReviewCursor;
+import com.example.demo.dto.ReviewView;
+import com.example.demo.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The cached pages must be byte for byte what the keyset queries would return, whatever order
+ * the reviews saved on this node commit in.
+ */
+class ReviewFeedCacheTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final ReviewFeedCache cache = new ReviewFeedCache(reviewRepository, jsonMapper, mock(CacheInvalidationBus.class));
+
+    // Two pages of two
+    @BeforeEach
+    void setPageSize() {
+        ReflectionTestUtils.setField(cache, "pageSize", 2);
+        ReflectionTestUtils.setField(cache, "cachedPages", 2);
+    }
+
+    @Test
+    void aReviewThatCommitsLateIsPlacedByCreationTimeNotCommitOrder() throws Exception {
+        warm(review(3, 3), review(2, 2), review(1, 1));
+        ReviewView earlier = review(4, 4);
+        ReviewView later = review(5, 5);
+
+        // Overlapping posts: the later one commits first
+        cache.onReviewSaved(later);
+        cache.onReviewSaved(earlier);
+
+        assertPages(List.of(later, earlier), List.of(review(3, 3), review(2, 2)));
+    }
+
+    @Test
+    void reviewsCreatedInTheSameMicrosecondAreOrderedByIdLikeTheQuery() throws Exception {
+        warm(review(3, 3), review(2, 2));
+        ReviewView sameTimeHigherId = new ReviewView(9L, "user", 5, "text", review(3, 3).createdAt());
+
+        cache.onReviewSaved(review(1, 1));
+        cache.onReviewSaved(sameTimeHigherId);
+
+        assertPages(List.of(sameTimeHigherId, review(3, 3)), List.of(review(2, 2), review(1, 1)));
+    }
+
+    @Test
+    void aReviewOlderThanEveryCachedOneLeavesTheFullSnapshotAlone() throws Exception {
+        warm(review(8, 8), review(7, 7), review(6, 6), review(5, 5));
+        ReviewFeedCache.Page before = cache.find(null, 2);
+
+        cache.onReviewSaved(review(4, 4));
+        // Already picked up by a rebuild
+        cache.onReviewSaved(review(7, 7));
+
+        assertSame(before, cache.find(null, 2));
+    }
+
+    @Test
+    void onlyTheConfiguredPageSizeIsCached() throws Exception {
+        warm(review(1, 1));
+
+        assertNull(cache.find(null, 3));
+        assertNull(cache.find("unknown-cursor", 2));
+        assertNull(cache.find(null, 2).nextCursor());
+    }
+
+    private void assertPages(List<ReviewView> first, List<ReviewView> second) {
+        ReviewFeedCache.Page page1 = cache.find(null, 2);
+        assertPage(first, page1);
+        assertEquals(ReviewCursor.after(first.get(1)).encode(), page1.nextCursor());
+
+        ReviewFeedCache.Page page2 = cache.find(page1.nextCursor(), 2);
+        assertPage(second, page2);
+        assertEquals(ReviewCursor.after(second.get(1)).encode(), page2.nextCursor());
+    }
+
+    private void assertPage(List<ReviewView> expected, ReviewFeedCache.Page page) {
+        byte[] json = jsonMapper.writeValueAsBytes(expected);
+        assertArrayEquals(json, page.json());
+        assertEquals("\"" + DigestUtils.md5DigestAsHex(json) + "\"", page.etag());
+    }
+
+    // The first rebuild runs in the background
+    private void warm(ReviewView... feed) throws InterruptedException {
+        when(reviewRepository.findFeedFirstPage(any(Limit.class))).thenReturn(List.of(feed));
+        cache.warmUp();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (cache.find(null, 2) == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static ReviewView review(long id, int minutes) {
+        return new ReviewView(id, "user", 5, "text", T0.plusMinutes(minutes));
+    }
+}
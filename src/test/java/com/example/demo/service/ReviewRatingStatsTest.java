@@ -0,0 +1,195 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ReviewRatingCount;
+import com.example.demo.repository.ReviewRatingCountRepository;
+import com.example.demo.repository.ReviewRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Local posts racing reloads from the rollup. The rollup table is an array that a post only
+ * changes when its transaction commits, and the transaction callbacks are driven by hand, so a
+ * reload can read between a commit and its in-memory increment.
+ */
+class ReviewRatingStatsTest {
+
+    private static final int POSTERS = 4;
+    private static final int POSTS_EACH = 1_000;
+
+    private final AtomicLongArray table = new AtomicLongArray(ReviewRatingStats.MAX_RATING + 1);
+    private final ReviewRatingCountRepository ratingCountRepository = mock(ReviewRatingCountRepository.class);
+    private final ReviewRatingStats stats = new ReviewRatingStats(mock(ReviewRepository.class), ratingCountRepository,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(CacheInvalidationBus.class));
+
+    private final ThreadLocal<Integer> uncommitted = new ThreadLocal<>();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void postsCommittedDuringReloadsAreCountedExactlyOnce() throws Exception {
+        doAnswer(invocation -> {
+            uncommitted.set(invocation.getArgument(0));
+            return 1;
+        }).when(ratingCountRepository).increment(anyInt());
+        stubTable();
+
+        ExecutorService executor = Executors.newFixedThreadPool(POSTERS + 2);
+        AtomicBoolean posting = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch postedWhileReloading = new CountDownLatch(POSTERS);
+        CountDownLatch reloadsDone = new CountDownLatch(1);
+        List<Future<?>> posters = new ArrayList<>();
+        for (int t = 0; t < POSTERS; t++) {
+            int offset = t;
+            posters.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < POSTS_EACH; i++) {
+                    post(ReviewRatingStats.MIN_RATING + (i + offset) % ReviewRatingStats.MAX_RATING);
+                }
+                postedWhileReloading.countDown();
+                // A few more after the last reload, so no reload papers over a miscount
+                reloadsDone.await();
+                for (int rating = ReviewRatingStats.MIN_RATING; rating <= ReviewRatingStats.MAX_RATING; rating++) {
+                    post(rating);
+                }
+                return null;
+            }));
+        }
+        // Two reloaders, so reloads also race each other
+        List<Future<?>> reloaders = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            reloaders.add(executor.submit(() -> {
+                start.await();
+                while (posting.get()) {
+                    stats.reload();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        postedWhileReloading.await(60, TimeUnit.SECONDS);
+        posting.set(false);
+        for (Future<?> reloader : reloaders) {
+            reloader.get(60, TimeUnit.SECONDS);
+        }
+        reloadsDone.countDown();
+        for (Future<?> poster : posters) {
+            poster.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Map<Integer, Long> expected = new LinkedHashMap<>();
+        for (int rating = ReviewRatingStats.MIN_RATING; rating <= ReviewRatingStats.MAX_RATING; rating++) {
+            expected.put(rating, table.get(rating));
+        }
+        assertEquals(POSTERS * (POSTS_EACH + ReviewRatingStats.MAX_RATING), stats.summary().count());
+        assertEquals(expected, stats.summary().histogram());
+    }
+
+    @Test
+    void aReloadThatStartsBetweenACommitAndItsIncrementWaitsForTheIncrement() throws Exception {
+        stubTable();
+        CountDownLatch committed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> poster = executor.submit(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                stats.record(4);
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                table.incrementAndGet(4);
+                committed.countDown();
+                Thread.sleep(200);
+                TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+                TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            return null;
+        });
+
+        committed.await(10, TimeUnit.SECONDS);
+        // Would read the committed row, swap, and then take the increment on top of it
+        stats.reload();
+        poster.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(1, stats.summary().count());
+    }
+
+    @Test
+    void aRolledBackPostIsNotCountedAndDoesNotHoldUpReloads() {
+        stubTable();
+
+        TransactionSynchronizationManager.initSynchronization();
+        stats.record(5);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        // The commit itself fails after beforeCommit
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        table.set(5, 3);
+        stats.reload();
+
+        assertEquals(3, stats.summary().count());
+    }
+
+    private void stubTable() {
+        when(ratingCountRepository.findAll()).thenAnswer(invocation -> {
+            List<ReviewRatingCount> rows = new ArrayList<>();
+            for (int rating = ReviewRatingStats.MIN_RATING; rating <= ReviewRatingStats.MAX_RATING; rating++) {
+                rows.add(new ReviewRatingCount(rating, table.get(rating)));
+                LockSupport.parkNanos(20_000);
+            }
+            return rows;
+        });
+    }
+
+    // What the transaction manager does around a successful commit, with the rollup row updated in the middle
+    private void post(int rating) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            stats.record(rating);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            table.incrementAndGet(uncommitted.get());
+            // Widen the window between the commit and the increment
+            LockSupport.parkNanos(20_000);
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.razorpay.Utils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The verifier must accept and reject exactly what the Razorpay SDK does.
+ */
+class SignatureVerifierTest {
+
+    private static final String KEY_SECRET = "key_secret_for_tests";
+    private static final String WEBHOOK_SECRET = "webhook_secret_for_tests";
+
+    private final SignatureVerifier verifier = new SignatureVerifier(KEY_SECRET, WEBHOOK_SECRET);
+
+    @Test
+    void paymentSignatureMatchesSdk() throws Exception {
+        String orderId = "order_Ixj2lW0ZyjrOq4";
+        String paymentId = "pay_Ixj3HhM2c3ZoBj";
+        String signature = Utils.getHash(orderId + "|" + paymentId, KEY_SECRET);
+
+        assertTrue(verifier.verifyPayment(orderId, paymentId, signature));
+        assertTrue(Utils.verifyPaymentSignature(new JSONObject()
+                .put("razorpay_order_id", orderId)
+                .put("razorpay_payment_id", paymentId)
+                .put("razorpay_signature", signature), KEY_SECRET));
+
+        assertFalse(verifier.verifyPayment(orderId, "pay_other", signature));
+        assertFalse(verifier.verifyPayment(orderId, paymentId, flipLastChar(signature)));
+        assertFalse(verifier.verifyPayment(orderId, paymentId, signature.substring(1)));
+        assertFalse(verifier.verifyPayment(orderId, paymentId, null));
+    }
+
+    @Test
+    void webhookSignatureMatchesSdk() throws Exception {
+        String payload = "{\"event\":\"payment.captured\",\"payload\":{\"note\":\"café\"}}";
+        String signature = Utils.getHash(payload, WEBHOOK_SECRET);
+
+        assertTrue(Utils.verifyWebhookSignature(payload, signature, WEBHOOK_SECRET));
+        assertTrue(verifier.verifyWebhook(payload.getBytes(StandardCharsets.UTF_8), signature));
+        assertFalse(verifier.verifyWebhook((payload + " ").getBytes(StandardCharsets.UTF_8), signature));
+        assertFalse(new SignatureVerifier(KEY_SECRET, "").verifyWebhook(
+                payload.getBytes(StandardCharsets.UTF_8), signature));
+    }
+
+    @Test
+    void pooledStateOnVirtualThreadsGivesSameResult() throws Exception {
+        String signature = Utils.getHash("order_1|pay_1", KEY_SECRET);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                int n = i;
+                executor.submit(() -> {
+                    assertTrue(verifier.verifyPayment("order_1", "pay_1", signature));
+                    assertFalse(verifier.verifyPayment("order_" + n, "pay_2", signature));
+                    return null;
+                }).get();
+            }
+        }
+        assertEquals(signature, Utils.getHash("order_1|pay_1", KEY_SECRET));
+    }
+
+    private static String flipLastChar(String hex) {
+        char last = hex.charAt(hex.length() - 1);
+        return hex.substring(0, hex.length() - 1) + (last == '0' ? '1' : '0');
+    }
+}
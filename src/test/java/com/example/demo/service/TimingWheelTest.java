@@ -0,0 +1,52 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void firesEntriesInDeadlineOrderAcrossLevels() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        // 10ms x 4 buckets per level, so 200ms and 700ms land in overflow levels
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 4, start);
+        wheel.add("c", start + 700);
+        wheel.add("a", start + 25);
+        wheel.add("b", start + 200);
+        assertEquals(3, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        List<Long> lateness = new ArrayList<>();
+        long[] deadlines = {start + 25, start + 200, start + 700};
+        while (fired.size() < 3) {
+            for (String item : wheel.poll(2, TimeUnit.SECONDS)) {
+                lateness.add(System.currentTimeMillis() - deadlines[fired.size()]);
+                fired.add(item);
+            }
+        }
+
+        assertEquals(List.of("a", "b", "c"), fired);
+        assertEquals(0, wheel.size());
+        // Never more than one tick early
+        lateness.forEach(ms -> assertTrue(ms >= -10, "fired " + -ms + "ms early"));
+    }
+
+    @Test
+    void refusesEntriesAlreadyDue() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(50), 8, start);
+
+        assertFalse(wheel.add("past", start - 1_000));
+        assertTrue(wheel.add("soon", start + 60));
+        assertTrue(wheel.poll(10, TimeUnit.MILLISECONDS).isEmpty());
+        assertEquals(List.of("soon"), wheel.poll(1, TimeUnit.SECONDS));
+    }
+}
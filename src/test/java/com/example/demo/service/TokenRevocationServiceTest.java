@@ -0,0 +1,173 @@
+package com.example.demo.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The in-memory mirror against H2 with the V4 tables. The single-token insert runs as is (its
+ * target-less on conflict is what lets it); the cutoff upsert is PostgreSQL-only, so it is
+ * stubbed, and cutoffs another node would have written are inserted directly.
+ */
+class TokenRevocationServiceTest {
+
+    private static final Duration LIFETIME = Duration.ofHours(24);
+    private static final Instant CUTOFF = Instant.parse("2026-01-01T00:00:10.700Z");
+
+    private final SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+            "jdbc:h2:mem:revocation;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+    private final JdbcTemplate jdbcTemplate = spy(new JdbcTemplate(dataSource));
+    private final CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+
+    private TokenRevocationService service;
+    private Consumer<String> fromOtherNodes;
+    private Runnable reset;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V4__token_revocation.sql"));
+        }
+        doReturn(1).when(jdbcTemplate).update(contains("on conflict (subject)"), any(), any(), any());
+
+        service = new TokenRevocationService(jdbcTemplate, invalidationBus,
+                new JwtService(new SimpleMeterRegistry(), 0, LIFETIME), 1000, 0.01);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> onInvalidate = ArgumentCaptor.forClass(Consumer.class);
+        ArgumentCaptor<Runnable> onReset = ArgumentCaptor.forClass(Runnable.class);
+        verify(invalidationBus).subscribe(eq(CacheInvalidationBus.REVOCATIONS), onInvalidate.capture(), onReset.capture());
+        fromOtherNodes = onInvalidate.getValue();
+        reset = onReset.getValue();
+    }
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("drop all objects");
+        dataSource.destroy();
+    }
+
+    @Test
+    void revokesATokenByIdAndToleratesRevokingItTwice() {
+        Date expiresAt = Date.from(Instant.now().plus(LIFETIME));
+        service.revokeToken("jti-1", expiresAt);
+        service.revokeToken("jti-1", expiresAt);
+
+        assertTrue(service.isRevoked(token("jti-1", "a@example.com", Instant.now())));
+        assertFalse(service.isRevoked(token("jti-2", "a@example.com", Instant.now())));
+        verify(invalidationBus, times(2)).publish(CacheInvalidationBus.REVOCATIONS, "jti:jti-1");
+    }
+
+    @Test
+    void cutoffIsTruncatedToTheSecondSoTokensIssuedInThatSecondStayValid() {
+        service.revokeAllBefore("a@example.com", CUTOFF);
+
+        verify(jdbcTemplate).update(contains("on conflict (subject)"), eq("a@example.com"),
+                eq(Timestamp.from(Instant.parse("2026-01-01T00:00:10Z"))), eq(Timestamp.from(CUTOFF.plus(LIFETIME))));
+        assertTrue(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:09.999Z"))));
+        // iat is whole seconds: a token issued 100ms after the cutoff carries the same second
+        assertFalse(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:10Z"))));
+        assertFalse(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:11Z"))));
+        assertFalse(service.isRevoked(token(null, "b@example.com", Instant.parse("2026-01-01T00:00:09Z"))));
+    }
+
+    @Test
+    void anEarlierCutoffNeverLiftsALaterOne() {
+        service.revokeAllBefore("a@example.com", CUTOFF);
+        service.revokeAllBefore("a@example.com", CUTOFF.minusSeconds(5));
+
+        assertTrue(service.isRevoked(token(null, "a@example.com", CUTOFF.minusSeconds(2))));
+    }
+
+    @Test
+    void tokensWithoutAnIdAreOnlyCheckedAgainstCutoffs() {
+        service.revokeToken("jti-1", Date.from(Instant.now().plus(LIFETIME)));
+
+        assertFalse(service.isRevoked(token(null, "a@example.com", Instant.now())));
+        service.revokeAllBefore("a@example.com", CUTOFF);
+        assertTrue(service.isRevoked(token(null, "a@example.com", CUTOFF.minusSeconds(60))));
+        // No issue time at all: cannot be shown to postdate the cutoff
+        assertTrue(service.isRevoked(token(null, "a@example.com", null)));
+        assertFalse(service.isRevoked(token(null, null, null)));
+    }
+
+    @Test
+    void appliesEntriesAddedByOtherNodes() {
+        insertCutoff("a@example.com", Instant.parse("2026-01-01T00:00:10Z"));
+
+        fromOtherNodes.accept("jti:jti-remote");
+        fromOtherNodes.accept("user:a@example.com");
+        // A notification for a row already cleaned up is a no-op
+        fromOtherNodes.accept("user:gone@example.com");
+
+        assertTrue(service.isRevoked(token("jti-remote", "b@example.com", Instant.now())));
+        assertTrue(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:09Z"))));
+        assertFalse(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:10Z"))));
+        assertFalse(service.isRevoked(token(null, "gone@example.com", Instant.parse("2026-01-01T00:00:09Z"))));
+    }
+
+    @Test
+    void reloadRebuildsTheMirrorFromTheTablesAndDropsExpiredRows() {
+        service.revokeToken("jti-live", Date.from(Instant.now().plus(LIFETIME)));
+        service.revokeToken("jti-expired", Date.from(Instant.now().minusSeconds(60)));
+        // Heard about but never persisted here, e.g. a notification for a row already deleted
+        fromOtherNodes.accept("jti:jti-orphan");
+        insertCutoff("a@example.com", Instant.parse("2026-01-01T00:00:10Z"));
+
+        service.refresh();
+
+        assertTrue(service.isRevoked(token("jti-live", null, Instant.now())));
+        assertFalse(service.isRevoked(token("jti-expired", null, Instant.now())));
+        assertFalse(service.isRevoked(token("jti-orphan", null, Instant.now())));
+        assertTrue(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:09Z"))));
+        assertEquals(List.of("jti-live"), jdbcTemplate.queryForList("select jti from revoked_tokens", String.class));
+    }
+
+    @Test
+    void aResetOfTheBusReloadsEverything() {
+        insertCutoff("a@example.com", Instant.parse("2026-01-01T00:00:10Z"));
+        assertFalse(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:09Z"))));
+
+        reset.run();
+
+        assertTrue(service.isRevoked(token(null, "a@example.com", Instant.parse("2026-01-01T00:00:09Z"))));
+    }
+
+    private void insertCutoff(String subject, Instant notBefore) {
+        jdbcTemplate.update("insert into token_cutoffs (subject, not_before, expires_at) values (?, ?, ?)",
+                subject, Timestamp.from(notBefore), Timestamp.from(Instant.now().plus(LIFETIME)));
+    }
+
+    private static Claims token(String id, String subject, Instant issuedAt) {
+        Claims claims = Jwts.claims().setId(id).setSubject(subject);
+        return issuedAt == null ? claims : claims.setIssuedAt(Date.from(issuedAt));
+    }
+}
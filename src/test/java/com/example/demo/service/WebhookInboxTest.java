@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The webhook inbox against a local Postgres in a throwaway schema, since both the batch insert
+ * and the processor's updates are PostgreSQL-only; skipped without {@code TEST_POSTGRES_URL}.
+ * The poison event carries a payment id longer than its column, so it fails in the database
+ * like a real bad event would.
+ */
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = "jdbc:postgresql:.+")
+class WebhookInboxTest {
+
+    private static final String SCHEMA = "webhook_inbox_test";
+    private static final String POISON_PAYMENT_ID = "pay_" + "x".repeat(300);
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            System.getenv("TEST_POSTGRES_URL"),
+            System.getenv().getOrDefault("TEST_POSTGRES_USERNAME", "postgres"),
+            System.getenv().getOrDefault("TEST_POSTGRES_PASSWORD", "postgres"));
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    private PaymentWebhookProcessor processor;
+    private WebhookInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+        jdbcTemplate.execute("create schema " + SCHEMA);
+        dataSource.setSchema(SCHEMA);
+        Flyway.configure().dataSource(dataSource).schemas(SCHEMA).load().migrate();
+
+        jdbcTemplate.update("insert into users (id, email, password) values (1, 'a@example.com', 'x')");
+        for (int order = 1; order <= 4; order++) {
+            jdbcTemplate.update("""
+                    insert into payments (id, razorpay_order_id, amount, currency, status, user_id, created_at)
+                    values (?, ?, 1999.0, 'INR', 'PENDING', 1, now())""", order, "order_" + order);
+        }
+
+        processor = spy(new PaymentWebhookProcessor(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), mock(EntitlementCache.class)));
+        inbox = new WebhookInbox(jdbcTemplate, processor, 100);
+        ReflectionTestUtils.setField(inbox, "batchSize", 10);
+        ReflectionTestUtils.setField(inbox, "recoveryAfter", Duration.ZERO);
+        ReflectionTestUtils.setField(inbox, "maxAttempts", 2);
+    }
+
+    @AfterEach
+    void dropSchema() {
+        inbox.stop();
+        dataSource.setSchema(null);
+        jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void storesEachEventOnceAndAppliesTheBatchInOneTransaction() throws Exception {
+        // Queued before the consumer starts, so they make up a single batch
+        ReflectionTestUtils.setField(inbox, "running", true);
+        List<CompletableFuture<Void>> acks = List.of(
+                inbox.submit("evt_1", "payment.captured", payload("pay_1", "order_1")),
+                inbox.submit("evt_1", "payment.captured", payload("pay_1", "order_1")),
+                inbox.submit("evt_2", "payment.failed", payload("pay_2", "order_2")));
+        inbox.start();
+        for (CompletableFuture<Void> ack : acks) {
+            ack.get(10, TimeUnit.SECONDS);
+        }
+        awaitProcessed("evt_1", "evt_2");
+
+        // A redelivery after it was applied is acknowledged and not applied again
+        inbox.submit("evt_1", "payment.captured", payload("pay_1", "order_1")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from webhook_events", Integer.class));
+        assertEquals("SUCCESS", status("order_1"));
+        assertEquals("FAILED", status("order_2"));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from subscriptions where active", Integer.class));
+        assertEquals(List.of(List.of("evt_1", "evt_2")), nonEmptyApplyCalls());
+    }
+
+    @Test
+    void aFailingEventIsAppliedAloneAndTheRestOfItsBatchStillGoesThrough() throws Exception {
+        ReflectionTestUtils.setField(inbox, "running", true);
+        List<CompletableFuture<Void>> acks = List.of(
+                inbox.submit("evt_1", "payment.captured", payload("pay_1", "order_1")),
+                inbox.submit("evt_poison", "payment.captured", payload(POISON_PAYMENT_ID, "order_2")),
+                inbox.submit("evt_3", "payment.failed", payload("pay_3", "order_3")));
+        inbox.start();
+        for (CompletableFuture<Void> ack : acks) {
+            ack.get(10, TimeUnit.SECONDS);
+        }
+        awaitProcessed("evt_1", "evt_3");
+
+        assertEquals("SUCCESS", status("order_1"));
+        assertEquals("PENDING", status("order_2"));
+        assertEquals("FAILED", status("order_3"));
+        assertNull(processedAt("evt_poison"));
+        assertEquals(1, attempts("evt_poison"));
+        assertTrue(lastError("evt_poison").contains("too long"), lastError("evt_poison"));
+    }
+
+    @Test
+    void recoveryWorksThroughTheBacklogAndParksAnEventThatKeepsFailing() {
+        insertStale("evt_1", "payment.captured", payload("pay_1", "order_1"), 8);
+        insertStale("evt_poison", "payment.captured", payload(POISON_PAYMENT_ID, "order_2"), 7);
+        insertStale("evt_3", "payment.failed", payload("pay_3", "order_3"), 6);
+        insertStale("evt_4", "order.paid", payload("pay_4", "order_4"), 5);
+        ReflectionTestUtils.setField(inbox, "batchSize", 2);
+
+        // Stops after the batch holding the failure, so the poison is not retried in the same sweep
+        inbox.recover();
+        assertNotNull(processedAt("evt_1"));
+        assertEquals(1, attempts("evt_poison"));
+        assertNull(processedAt("evt_3"));
+
+        inbox.recover();
+        assertNotNull(processedAt("evt_3"));
+        assertNull(processedAt("evt_4"));
+        assertEquals(2, attempts("evt_poison"));
+
+        // Parked: no longer picked up, nor in the way of the events after it
+        inbox.recover();
+        assertNotNull(processedAt("evt_4"));
+        assertEquals(2, attempts("evt_poison"));
+        assertNull(processedAt("evt_poison"));
+        assertEquals("PENDING", status("order_2"));
+
+        // Until its attempts are reset, here with the payload corrected
+        jdbcTemplate.update("update webhook_events set attempts = 0, payload = ? where event_id = 'evt_poison'",
+                payload("pay_2", "order_2"));
+        inbox.recover();
+        assertNotNull(processedAt("evt_poison"));
+        assertEquals("SUCCESS", status("order_2"));
+    }
+
+    private List<List<String>> nonEmptyApplyCalls() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentWebhookProcessor.Event>> batches = ArgumentCaptor.forClass(List.class);
+        verify(processor, atLeastOnce()).apply(batches.capture());
+        return batches.getAllValues().stream()
+                .filter(batch -> !batch.isEmpty())
+                .map(batch -> batch.stream().map(PaymentWebhookProcessor.Event::eventId).toList())
+                .toList();
+    }
+
+    // Applying runs after the acknowledgements
+    private void awaitProcessed(String... eventIds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (String eventId : eventIds) {
+            while (processedAt(eventId) == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotNull(processedAt(eventId), eventId + " was not applied");
+        }
+    }
+
+    private void insertStale(String eventId, String eventType, String payload, int minutesAgo) {
+        jdbcTemplate.update("insert into webhook_events (event_id, event_type, payload, received_at) values (?, ?, ?, ?)",
+                eventId, eventType, payload, Timestamp.valueOf(LocalDateTime.now().minusMinutes(minutesAgo)));
+    }
+
+    private String status(String orderId) {
+        return jdbcTemplate.queryForObject("select status from payments where razorpay_order_id = ?", String.class, orderId);
+    }
+
+    private Timestamp processedAt(String eventId) {
+        return jdbcTemplate.queryForObject("select processed_at from webhook_events where event_id = ?", Timestamp.class, eventId);
+    }
+
+    private int attempts(String eventId) {
+        return jdbcTemplate.queryForObject("select attempts from webhook_events where event_id = ?", Integer.class, eventId);
+    }
+
+    private String lastError(String eventId) {
+        return jdbcTemplate.queryForObject("select last_error from webhook_events where event_id = ?", String.class, eventId);
+    }
+
+    private static String payload(String paymentId, String orderId) {
+        return "{\"payload\":{\"payment\":{\"entity\":{\"id\":\"" + paymentId + "\",\"order_id\":\"" + orderId + "\"}}}}";
+    }
+}
@@ -0,0 +1,78 @@
+package com.razorpay;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Orders API client that talks to a local stand-in instead of api.razorpay.com. The SDK's host
+ * is a compile-time constant and its client constructors are package-private, hence this package.
+ * Errors are surfaced the way the SDK does, as {@code "<code>:<description>"}.
+ */
+public class StubOrderClient extends OrderClient {
+
+    private final HttpClient httpClient;
+    private final URI ordersUri;
+
+    public StubOrderClient(URI baseUri) {
+        super(null);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.ordersUri = baseUri.resolve("/v1/orders");
+    }
+
+    @Override
+    public Order create(JSONObject request) throws RazorpayException {
+        HttpRequest httpRequest = HttpRequest.newBuilder(ordersUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(request.toString()))
+                .build();
+        return new Order(send(httpRequest));
+    }
+
+    @Override
+    public List<Order> fetchAll(JSONObject query) throws RazorpayException {
+        StringJoiner params = new StringJoiner("&", "?", "").setEmptyValue("");
+        for (String key : query.keySet()) {
+            params.add(key + "=" + URLEncoder.encode(query.get(key).toString(), StandardCharsets.UTF_8));
+        }
+        JSONArray items = send(HttpRequest.newBuilder(URI.create(ordersUri + params.toString())).GET().build())
+                .getJSONArray("items");
+        List<Order> orders = new ArrayList<>(items.length());
+        for (int i = 0; i < items.length(); i++) {
+            orders.add(new Order(items.getJSONObject(i)));
+        }
+        return orders;
+    }
+
+    private JSONObject send(HttpRequest request) throws RazorpayException {
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new RazorpayException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RazorpayException("Interrupted", e);
+        }
+        JSONObject body = new JSONObject(response.body());
+        if (response.statusCode() >= 400) {
+            JSONObject error = body.getJSONObject("error");
+            throw new RazorpayException(error.getString("code") + ":" + error.getString("description"));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,58 @@
+-- The schema hibernate.ddl-auto=create built before Flyway owned it (the state of every
+-- database in production before the migrations), used to test baselining and upgrading.
+
+create table users (
+    id           bigint generated by default as identity,
+    created_at   timestamp(6),
+    email        varchar(255) not null,
+    full_name    varchar(255),
+    password     varchar(255) not null,
+    phone_number varchar(255),
+    primary key (id)
+);
+
+create table payments (
+    amount              float(53),
+    created_at          timestamp(6),
+    id                  bigint generated by default as identity,
+    user_id             bigint,
+    currency            varchar(255),
+    razorpay_order_id   varchar(255),
+    razorpay_payment_id varchar(255),
+    razorpay_signature  varchar(255),
+    status              varchar(255),
+    primary key (id)
+);
+
+create table reviews (
+    rating     integer not null,
+    created_at timestamp(6),
+    id         bigint generated by default as identity,
+    massage    text,
+    user_name  varchar(255) not null,
+    primary key (id)
+);
+
+create table subscriptions (
+    active     boolean,
+    amount     float(53),
+    created_at timestamp(6),
+    end_date   timestamp(6),
+    id         bigint generated by default as identity,
+    payment_id bigint,
+    start_date timestamp(6),
+    user_id    bigint unique,
+    plan_name  varchar(255),
+    primary key (id)
+);
+
+alter table if exists users add constraint users_email_key unique (email);
+alter table if exists payments add constraint fkj94hgy9v5fw1munb90tar2eje foreign key (user_id) references users;
+alter table if exists subscriptions add constraint fkl0u0j3v1mekx5c2panq0mia30 foreign key (payment_id) references payments;
+alter table if exists subscriptions add constraint fkhro52ohfqfbay9774bev0qinr foreign key (user_id) references users;
+
+insert into users (email, password, full_name, created_at) values ('existing@example.com', '$2a$10$hash', 'Existing User', now());
+insert into payments (amount, currency, status, user_id, razorpay_order_id, created_at) values (1999, 'INR', 'SUCCESS', 1, 'order_existing', now());
+insert into subscriptions (user_id, plan_name, amount, start_date, end_date, active, payment_id, created_at)
+values (1, '1 Month', 1999, now(), now() + interval '1 month', true, 1, now());
+insert into reviews (user_name, rating, massage, created_at) values ('Existing User', 5, 'Great', now());